@@ -0,0 +1,33 @@
+package delivery.backend;
+
+import org.springframework.boot.Banner;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+/**
+ * Starting the application for benchmarks.
+ *
+ * The application is started without the web server, the startup import and the weather archive, so the
+ * benchmarks use the real beans with only the weather data they save themselves.
+ */
+public final class BenchmarkContext {
+
+    private BenchmarkContext() {
+    }
+
+    /**
+     * Starting the application.
+     *
+     * @return The started application context, closed by the benchmark.
+     */
+    public static ConfigurableApplicationContext start() {
+        return new SpringApplicationBuilder(DeliveryApplication.class)
+                .web(WebApplicationType.NONE)
+                .bannerMode(Banner.Mode.OFF)
+                .run("--weather.import-on-startup=false",
+                        "--weather.archive.directory=",
+                        "--spring.datasource.url=jdbc:h2:mem:benchmark",
+                        "--logging.level.root=WARN");
+    }
+}
@@ -0,0 +1,86 @@
+package delivery.backend.services;
+
+import delivery.backend.BenchmarkContext;
+import delivery.backend.dto.FeeResult;
+import delivery.backend.entities.Delivery;
+import delivery.backend.entities.WeatherData;
+import delivery.backend.stations.StationRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Fee calculation of DeliveryService for every vehicle type and weather phenomenon class.
+ *
+ * Tallinn has 30 days of hourly weather data with -5 °C air temperature, 5 m/s wind speed and the phenomenon.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class DeliveryServiceBenchmark {
+
+    @Param({"car", "scooter", "bike"})
+    public String vehicle;
+
+    // One phenomenon of every phenomenon class: NONE, RAIN, SNOW and DANGEROUS
+    @Param({"Clear", "Light rain", "Light snow", "Thunder"})
+    public String phenomenon;
+
+    private ConfigurableApplicationContext context;
+
+    private DeliveryService deliveryService;
+
+    private Delivery delivery;
+
+    private LocalDateTime date;
+
+    @Setup
+    public void setUp() {
+        context = BenchmarkContext.start();
+        deliveryService = context.getBean(DeliveryService.class);
+
+        LocalDateTime now = LocalDateTime.now().truncatedTo(ChronoUnit.HOURS);
+        List<WeatherData> weatherReports = new ArrayList<>();
+        for (int hour = 0; hour < 30 * 24; hour++) {
+            weatherReports.add(new WeatherData("Tallinn-Harku", 26038, -5.0, 5.0, phenomenon,
+                    now.minusHours(hour)));
+        }
+        context.getBean(ImportWeatherService.class).saveWeatherData(weatherReports);
+
+        delivery = new Delivery(context.getBean(StationRegistry.class), "26038", vehicle);
+        date = now.minusDays(10).plusMinutes(20);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public FeeResult latestFee() {
+        return deliveryService.calculateDeliveryFee(delivery, null, false);
+    }
+
+    @Benchmark
+    public FeeResult latestFeeWithBreakdown() {
+        return deliveryService.calculateDeliveryFee(delivery, null, true);
+    }
+
+    @Benchmark
+    public FeeResult datedFee() {
+        return deliveryService.calculateDeliveryFee(delivery, date, false);
+    }
+}
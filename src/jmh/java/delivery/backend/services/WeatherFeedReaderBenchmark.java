@@ -0,0 +1,50 @@
+package delivery.backend.services;
+
+import delivery.backend.entities.WeatherData;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import javax.xml.stream.XMLStreamException;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reading recorded observations feeds with the WeatherFeedReader of the import.
+ *
+ * The small feed has 9 stations like the real feed, the large one has 1000 stations.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class WeatherFeedReaderBenchmark {
+
+    @Param({"observations.xml", "observations-large.xml"})
+    public String feed;
+
+    private byte[] feedBytes;
+
+    private WeatherFeedReader reader;
+
+    @Setup
+    public void setUp() throws IOException {
+        try (InputStream recorded = WeatherFeedReaderBenchmark.class.getResourceAsStream("/" + feed)) {
+            feedBytes = recorded.readAllBytes();
+        }
+        reader = new WeatherFeedReader(Set.of(26038, 26242, 41803)::contains);
+    }
+
+    @Benchmark
+    public List<WeatherData> readFeed() throws XMLStreamException {
+        return reader.read(new ByteArrayInputStream(feedBytes));
+    }
+}
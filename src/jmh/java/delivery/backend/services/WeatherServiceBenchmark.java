@@ -0,0 +1,91 @@
+package delivery.backend.services;
+
+import delivery.backend.BenchmarkContext;
+import delivery.backend.cache.WeatherCache;
+import delivery.backend.entities.WeatherData;
+import delivery.backend.enums.Phenomenon;
+import delivery.backend.stations.Station;
+import delivery.backend.stations.StationRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Weather data lookups of WeatherService for weather histories of different sizes.
+ *
+ * The hourly history is put straight into the WeatherCache, so big histories do not have to be saved first.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class WeatherServiceBenchmark {
+
+    private static final int DATES = 1024;
+
+    @Param({"10", "1000", "100000", "1000000"})
+    public int historySize;
+
+    private ConfigurableApplicationContext context;
+
+    private WeatherService weatherService;
+
+    private Station station;
+
+    // Random dates inside the history, used in turn
+    private final LocalDateTime[] dates = new LocalDateTime[DATES];
+
+    private int next;
+
+    @Setup
+    public void setUp() {
+        context = BenchmarkContext.start();
+        weatherService = context.getBean(WeatherService.class);
+        station = context.getBean(StationRegistry.class).fromWmoCode(26038);
+
+        LocalDateTime now = LocalDateTime.now().truncatedTo(ChronoUnit.HOURS);
+        List<WeatherData> weatherReports = new ArrayList<>(historySize);
+        for (int hour = historySize - 1; hour > 0; hour--) {
+            weatherReports.add(new WeatherData("Tallinn-Harku", 26038, 10.0, 5.0, "Light rain", Phenomenon.RAIN,
+                    now.minusHours(hour)));
+        }
+        WeatherCache weatherCache = context.getBean(WeatherCache.class);
+        weatherCache.getHistory(station).replaceAll(weatherReports);
+        weatherCache.publish(List.of(new WeatherData("Tallinn-Harku", 26038, 10.0, 5.0, "Light rain",
+                Phenomenon.RAIN, now)));
+
+        Random random = new Random(42);
+        for (int i = 0; i < DATES; i++) {
+            dates[i] = now.minusMinutes(random.nextInt(historySize * 60));
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public WeatherData latestWeatherData() {
+        return weatherService.getLatestWeatherData(station);
+    }
+
+    @Benchmark
+    public int closestObservation() {
+        return weatherService.findClosestObservation(weatherService.getWeatherHistory(station),
+                dates[next++ & (DATES - 1)]);
+    }
+}
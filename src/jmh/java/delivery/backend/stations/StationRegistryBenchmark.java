@@ -0,0 +1,65 @@
+package delivery.backend.stations;
+
+import delivery.backend.enums.Vehicle;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Finding stations by wmo code in the StationRegistry.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class StationRegistryBenchmark {
+
+    private static final int LOOKUPS = 1024;
+
+    @Param({"3", "1000"})
+    public int stations;
+
+    private StationRegistry stationRegistry;
+
+    // Wmo codes of configured and of unknown stations, used in turn
+    private final int[] wmoCodes = new int[LOOKUPS];
+
+    private final int[] unknownWmoCodes = new int[LOOKUPS];
+
+    private int next;
+
+    @Setup
+    public void setUp() {
+        Properties properties = new Properties();
+        for (int i = 0; i < stations; i++) {
+            properties.setProperty("station.CITY" + i + ".wmocode", String.valueOf(26000 + i * 7));
+            for (Vehicle vehicle : Vehicle.values()) {
+                properties.setProperty("station.CITY" + i + ".basefee." + vehicle.name(), "3");
+            }
+        }
+        stationRegistry = new StationRegistry(null);
+        stationRegistry.load(properties);
+
+        for (int i = 0; i < LOOKUPS; i++) {
+            wmoCodes[i] = 26000 + (i % stations) * 7;
+            unknownWmoCodes[i] = 26001 + (i % stations) * 7;
+        }
+    }
+
+    @Benchmark
+    public Station fromWmoCode() {
+        return stationRegistry.fromWmoCode(wmoCodes[next++ & (LOOKUPS - 1)]);
+    }
+
+    @Benchmark
+    public Station getUnknown() {
+        return stationRegistry.get(unknownWmoCodes[next++ & (LOOKUPS - 1)]);
+    }
+}
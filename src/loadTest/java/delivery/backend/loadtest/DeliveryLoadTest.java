@@ -0,0 +1,228 @@
+package delivery.backend.loadtest;
+
+import delivery.backend.DeliveryApplication;
+import delivery.backend.entities.WeatherData;
+import delivery.backend.services.ImportWeatherService;
+import org.HdrHistogram.Histogram;
+import org.springframework.boot.Banner;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * DeliveryLoadTest object.
+ *
+ * Load generator for GET /delivery. Starts the application with an in-memory database seeded with 30 days of hourly
+ * weather data of every station, or uses a running application given with --url. Every concurrency level is run
+ * with three request mixes: only latest fees, only dated fees and the realistic mix. Every client thread sends the
+ * next request as soon as the previous one is answered, the latencies are recorded in HDR histograms.
+ *
+ * Arguments (all optional):
+ *      --url=http://localhost:8080   - Application to test, started in-process when not given
+ *      --concurrency=1,4,16,64       - Numbers of client threads, one run per number
+ *      --warmup=5                    - Seconds of warmup before every run, not measured
+ *      --duration=15                 - Seconds every run is measured
+ *      --dated-share=0.2             - Share of dated requests in the realistic mix
+ *
+ * Run with ./gradlew loadTest -PloadTestArgs="--concurrency=8,32 --duration=30"
+ */
+public final class DeliveryLoadTest {
+
+    private static final int REQUESTS = 4096;
+
+    private static final int SEEDDAYS = 30;
+
+    // Realistic station and vehicle mix, weights in percent
+    private static final String[] STATIONS = {"26038", "26242", "41803"};
+
+    private static final int[] STATIONWEIGHTS = {50, 30, 20};
+
+    private static final String[] VEHICLES = {"car", "scooter", "bike"};
+
+    private static final int[] VEHICLEWEIGHTS = {40, 30, 30};
+
+    // Latencies up to one minute are recorded in microseconds with 3 significant digits
+    private static final long HIGHESTLATENCY = TimeUnit.MINUTES.toMicros(1);
+
+    private final HttpClient httpClient = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
+
+    private final String url;
+
+    private final Random random = new Random(42);
+
+    private DeliveryLoadTest(String url) {
+        this.url = url;
+    }
+
+    public static void main(String[] args) throws Exception {
+        String url = argument(args, "url", null);
+        int[] concurrencies = parseInts(argument(args, "concurrency", "1,4,16,64"));
+        Duration warmup = Duration.ofSeconds(Long.parseLong(argument(args, "warmup", "5")));
+        Duration duration = Duration.ofSeconds(Long.parseLong(argument(args, "duration", "15")));
+        double datedShare = Double.parseDouble(argument(args, "dated-share", "0.2"));
+
+        ConfigurableApplicationContext context = null;
+        if (url == null) {
+            context = startApplication();
+            url = "http://localhost:" + ((WebServerApplicationContext) context).getWebServer().getPort();
+        }
+
+        try {
+            DeliveryLoadTest loadTest = new DeliveryLoadTest(url);
+            System.out.printf("%-7s %11s %10s %9s %9s %9s %9s %9s %7s%n", "mix", "concurrency", "req/s",
+                    "p50 ms", "p90 ms", "p99 ms", "p999 ms", "max ms", "errors");
+
+            for (int concurrency : concurrencies) {
+                loadTest.run("latest", loadTest.createRequests(0), concurrency, warmup, duration);
+                loadTest.run("dated", loadTest.createRequests(1), concurrency, warmup, duration);
+                loadTest.run("mixed", loadTest.createRequests(datedShare), concurrency, warmup, duration);
+            }
+        } finally {
+            if (context != null) {
+                context.close();
+            }
+        }
+    }
+
+    // Starts the application on a random port and seeds the database with hourly weather data of every station
+    private static ConfigurableApplicationContext startApplication() {
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(DeliveryApplication.class)
+                .bannerMode(Banner.Mode.OFF)
+                .run("--server.port=0",
+                        "--weather.import-on-startup=false",
+                        "--weather.archive.directory=",
+                        "--spring.datasource.url=jdbc:h2:mem:loadtest",
+                        "--logging.level.root=WARN");
+
+        String[] names = {"Tallinn-Harku", "Tartu-Tõravere", "Pärnu"};
+        String[] phenomena = {"Clear", "Light rain", "Light snow", "Few clouds"};
+        Random random = new Random(7);
+        LocalDateTime now = LocalDateTime.now().truncatedTo(ChronoUnit.HOURS);
+
+        List<WeatherData> weatherReports = new ArrayList<>();
+        for (int station = 0; station < STATIONS.length; station++) {
+            for (int hour = 0; hour < SEEDDAYS * 24; hour++) {
+                weatherReports.add(new WeatherData(names[station], Integer.parseInt(STATIONS[station]),
+                        -15 + random.nextInt(35), random.nextInt(25), phenomena[random.nextInt(phenomena.length)],
+                        now.minusHours(hour)));
+            }
+        }
+        context.getBean(ImportWeatherService.class).saveWeatherData(weatherReports);
+        return context;
+    }
+
+    // Requests are created before the run, so creating them is not measured
+    private HttpRequest[] createRequests(double datedShare) {
+        LocalDateTime now = LocalDateTime.now().truncatedTo(ChronoUnit.MINUTES);
+        HttpRequest[] requests = new HttpRequest[REQUESTS];
+
+        for (int i = 0; i < REQUESTS; i++) {
+            String uri = url + "/delivery?station=" + pick(STATIONS, STATIONWEIGHTS)
+                    + "&vehicle=" + pick(VEHICLES, VEHICLEWEIGHTS);
+            if (random.nextDouble() < datedShare) {
+                uri += "&date=" + now.minusMinutes(random.nextInt(SEEDDAYS * 24 * 60));
+            }
+            requests[i] = HttpRequest.newBuilder(URI.create(uri)).timeout(Duration.ofSeconds(30)).GET().build();
+        }
+        return requests;
+    }
+
+    private void run(String mix, HttpRequest[] requests, int concurrency, Duration warmup, Duration duration)
+            throws InterruptedException {
+        long warmupEnd = System.nanoTime() + warmup.toNanos();
+        long end = warmupEnd + duration.toNanos();
+
+        Histogram[] histograms = new Histogram[concurrency];
+        AtomicLong errors = new AtomicLong();
+        Thread[] clients = new Thread[concurrency];
+
+        for (int i = 0; i < concurrency; i++) {
+            Histogram histogram = new Histogram(HIGHESTLATENCY, 3);
+            histograms[i] = histogram;
+            int first = i * (REQUESTS / concurrency);
+
+            clients[i] = new Thread(() -> {
+                int next = first;
+                long start;
+                while ((start = System.nanoTime()) < end) {
+                    boolean ok = send(requests[next++ & (REQUESTS - 1)]);
+                    long latency = System.nanoTime() - start;
+                    if (start < warmupEnd) {
+                        continue;
+                    }
+                    histogram.recordValue(Math.min(TimeUnit.NANOSECONDS.toMicros(latency), HIGHESTLATENCY));
+                    if (!ok) {
+                        errors.incrementAndGet();
+                    }
+                }
+            }, "load-client-" + i);
+            clients[i].start();
+        }
+        for (Thread client : clients) {
+            client.join();
+        }
+
+        Histogram total = new Histogram(HIGHESTLATENCY, 3);
+        for (Histogram histogram : histograms) {
+            total.add(histogram);
+        }
+        System.out.printf("%-7s %11d %10.0f %9.2f %9.2f %9.2f %9.2f %9.2f %7d%n", mix, concurrency,
+                total.getTotalCount() / (double) duration.toSeconds(),
+                total.getValueAtPercentile(50) / 1000.0, total.getValueAtPercentile(90) / 1000.0,
+                total.getValueAtPercentile(99) / 1000.0, total.getValueAtPercentile(99.9) / 1000.0,
+                total.getMaxValue() / 1000.0, errors.get());
+    }
+
+    private boolean send(HttpRequest request) {
+        try {
+            return httpClient.send(request, HttpResponse.BodyHandlers.discarding()).statusCode() == 200;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    private String pick(String[] values, int[] weights) {
+        int choice = random.nextInt(100);
+        for (int i = 0; i < values.length; i++) {
+            choice -= weights[i];
+            if (choice < 0) {
+                return values[i];
+            }
+        }
+        return values[values.length - 1];
+    }
+
+    private static String argument(String[] args, String name, String defaultValue) {
+        for (String arg : args) {
+            if (arg.startsWith("--" + name + "=")) {
+                return arg.substring(name.length() + 3);
+            }
+        }
+        return defaultValue;
+    }
+
+    private static int[] parseInts(String values) {
+        String[] parts = values.split(",");
+        int[] ints = new int[parts.length];
+        for (int i = 0; i < parts.length; i++) {
+            ints[i] = Integer.parseInt(parts[i].trim());
+        }
+        return ints;
+    }
+}
@@ -1,7 +1,10 @@
 package delivery.backend;
 
+import delivery.backend.runners.RepricingRunner;
+import org.springframework.boot.DefaultApplicationArguments;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.context.ConfigurableApplicationContext;
 import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
@@ -9,7 +12,12 @@ import org.springframework.scheduling.annotation.EnableScheduling;
 public class DeliveryApplication {
 
     public static void main(String[] args) {
-        SpringApplication.run(DeliveryApplication.class, args);
+        ConfigurableApplicationContext context = SpringApplication.run(DeliveryApplication.class, args);
+
+        // A repricing run is done when the RepricingRunner has priced the orders
+        if (new DefaultApplicationArguments(args).containsOption(RepricingRunner.INPUTOPTION)) {
+            System.exit(SpringApplication.exit(context));
+        }
     }
 
 }
@@ -0,0 +1,85 @@
+package delivery.backend.cache;
+
+import delivery.backend.dto.FeeResult;
+import delivery.backend.entities.WeatherData;
+import delivery.backend.enums.Vehicle;
+import delivery.backend.services.FeeCalculator;
+import delivery.backend.stations.Station;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * FeeMatrix object.
+ *
+ * Delivery fee results of every station and vehicle type calculated with the latest weather data.
+ * Indexed by station id and vehicle type ordinal, so getting a fee is a two-index array read.
+ */
+public final class FeeMatrix {
+
+    public static final FeeMatrix EMPTY = new FeeMatrix(new FeeResult[0][], Collections.emptyMap());
+
+    private final FeeResult[][] results;
+
+    private final Map<String, Map<Vehicle, FeeResult>> asMap;
+
+    private FeeMatrix(FeeResult[][] results, Map<String, Map<Vehicle, FeeResult>> asMap) {
+        this.results = results;
+        this.asMap = asMap;
+    }
+
+    /**
+     * Calculating the fees of every station and vehicle type.
+     *
+     * @param stations Every station.
+     * @param latest The latest weather data of every station indexed by station id.
+     * @param feeCalculator Calculator with the fee rules.
+     * @return The calculated fee matrix.
+     */
+    static FeeMatrix calculate(List<Station> stations, WeatherData[] latest, FeeCalculator feeCalculator) {
+        Vehicle[] vehicles = Vehicle.values();
+
+        FeeResult[][] results = new FeeResult[stations.size()][vehicles.length];
+        Map<String, Map<Vehicle, FeeResult>> asMap = new LinkedHashMap<>();
+
+        for (Station station : stations) {
+            WeatherData weatherData = latest[station.getId()];
+            Map<Vehicle, FeeResult> stationResults = new EnumMap<>(Vehicle.class);
+
+            for (Vehicle vehicle : vehicles) {
+                FeeResult result = weatherData == null
+                        ? FeeResult.WEATHER_DATA_NOT_FOUND
+                        : feeCalculator.calculateFee(station, vehicle, weatherData, false);
+
+                results[station.getId()][vehicle.ordinal()] = result;
+                stationResults.put(vehicle, result);
+            }
+            asMap.put(station.getCity(), Collections.unmodifiableMap(stationResults));
+        }
+        return new FeeMatrix(results, Collections.unmodifiableMap(asMap));
+    }
+
+    /**
+     * Getting the delivery fee result.
+     *
+     * @param station The station near the chosen city.
+     * @param vehicle Type of the vehicle for the deliverer.
+     * @return The calculated delivery fee or the reason why there is no fee.
+     */
+    public FeeResult getResult(Station station, Vehicle vehicle) {
+        int id = station.getId();
+        return id < results.length ? results[id][vehicle.ordinal()] : FeeResult.WEATHER_DATA_NOT_FOUND;
+    }
+
+    /**
+     * Getting the whole matrix.
+     *
+     * @return Delivery fee result of every city and vehicle type.
+     */
+    public Map<String, Map<Vehicle, FeeResult>> toMap() {
+        return asMap;
+    }
+}
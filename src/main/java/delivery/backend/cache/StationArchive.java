@@ -0,0 +1,606 @@
+package delivery.backend.cache;
+
+import delivery.backend.entities.WeatherData;
+import delivery.backend.enums.Phenomenon;
+import delivery.backend.stations.Station;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * StationArchive object.
+ *
+ * Weather history of one station in a memory-mapped file of fixed size records sorted by the observation time.
+ *
+ * The file starts with a header:
+ *      - magic number                   (int)
+ *      - record size                    (int)
+ *      - number of records              (long)
+ *      - station name length and bytes  (short + up to 46 bytes of UTF-8)
+ * followed by the records:
+ *      - epoch seconds of the observation (long)
+ *      - air temperature                  (float)
+ *      - wind speed                       (float)
+ *      - weather phenomenon class code    (byte)
+ *
+ * A record is written before the number of records is updated, so a record that was not fully written when the
+ * application stopped is not read. Readers use the mapping without locking, like the arrays of StationTimeSeries.
+ *
+ * A rewritten archive (a merge or a compaction) is written to a new generation of the file, e.g. "26038.wda.2"
+ * after "26038.wda.1", and the mapping is switched over to it. A mapped file can not be replaced or deleted on
+ * Windows, so the old generation is deleted when it can be, otherwise when the archive is opened again. The
+ * latest generation is opened.
+ */
+public final class StationArchive implements Closeable {
+
+    private static final ZoneId ZONE = ZoneId.of("Europe/Tallinn");
+
+    private static final int MAGIC = 0x57444131;
+
+    private static final int HEADERSIZE = 64;
+
+    private static final int MAXNAMEBYTES = HEADERSIZE - 18;
+
+    private static final int RECORDSIZE = Long.BYTES + Float.BYTES + Float.BYTES + Byte.BYTES;
+
+    private static final int INITIALCAPACITY = 1024;
+
+    private static final int PENDINGINDEXBITS = 20;
+
+    // Older observations waiting to be merged, at most 17 MB
+    private static final int MAXPENDING = 1 << PENDINGINDEXBITS;
+
+    private final Station station;
+
+    // The first generation of the archive file, the later generations have the generation number after it
+    private final Path file;
+
+    private Path generationFile;
+
+    private long generation;
+
+    // Merged when this many older observations are waiting, at most MAXPENDING
+    private final int maxPending;
+
+    private FileChannel channel;
+
+    private volatile Mapping mapping;
+
+    private volatile String stationName;
+
+    // Older observations waiting to be merged, records in the format of the file without the header
+    private ByteBuffer pending = ByteBuffer.allocate(0);
+
+    private int pendingSize;
+
+    private StationArchive(Station station, Path file, int maxPending) {
+        this.station = station;
+        this.file = file;
+        this.maxPending = maxPending;
+    }
+
+    /**
+     * Opening the archive file of the station, the file is created if it does not exist.
+     *
+     * @param station The station which weather history is archived.
+     * @param file The archive file.
+     * @return The opened archive.
+     * @throws IOException when the file can not be opened or is not an archive file.
+     */
+    public static StationArchive open(Station station, Path file) throws IOException {
+        return open(station, file, MAXPENDING);
+    }
+
+    static StationArchive open(Station station, Path file, int maxPending) throws IOException {
+        if (maxPending < 1 || maxPending > MAXPENDING) {
+            throw new IllegalArgumentException("At most " + MAXPENDING + " observations can wait to be merged");
+        }
+        StationArchive archive = new StationArchive(station, file, maxPending);
+        archive.openLatestGeneration();
+        archive.map();
+        return archive;
+    }
+
+    /**
+     * Getting the number of observations in the archive.
+     *
+     * @return The number of observations.
+     */
+    public int size() {
+        return mapping.size;
+    }
+
+    /**
+     * Adding new observations to the archive.
+     *
+     * Observations newer than the latest archived one are appended to the end of the mapped file. Older
+     * observations are kept in memory until they are merged into a new file that replaces the old one. They are
+     * merged at once, or with deferMerge only when the archive is flushed or as soon as MAXPENDING (about a million)
+     * are waiting, so loading history in many batches rewrites the file once instead of once per batch.
+     * Observations with the same time as an archived one are skipped.
+     *
+     * @param weatherReports Weather data of the station sorted by timestamp.
+     * @param deferMerge If older observations are merged only when the archive is flushed.
+     * @throws IOException when the file can not be written.
+     */
+    public synchronized void addAll(List<WeatherData> weatherReports, boolean deferMerge) throws IOException {
+        if (weatherReports.isEmpty()) {
+            return;
+        }
+        Mapping current = mapping;
+        long latest = current.size > 0 ? current.epochSecond(current.size - 1) : Long.MIN_VALUE;
+
+        // The reports are sorted, so the older ones come first
+        int newer = 0;
+        while (newer < weatherReports.size()
+                && StationTimeSeries.toEpochSecond(weatherReports.get(newer).getTimestamp()) <= latest) {
+            addPending(weatherReports.get(newer++));
+        }
+        append(weatherReports.subList(newer, weatherReports.size()));
+
+        if (pendingSize > 0 && !deferMerge) {
+            merge();
+        }
+        writeStationName(weatherReports.get(weatherReports.size() - 1).getStationName());
+        mapping.force();
+    }
+
+    /**
+     * Adding new observations to the archive and merging older observations at once.
+     *
+     * @param weatherReports Weather data of the station sorted by timestamp.
+     * @throws IOException when the file can not be written.
+     */
+    public void addAll(List<WeatherData> weatherReports) throws IOException {
+        addAll(weatherReports, false);
+    }
+
+    /**
+     * Merging the older observations that are waiting in memory into the archive file.
+     *
+     * @throws IOException when the file can not be written.
+     */
+    public synchronized void flush() throws IOException {
+        if (pendingSize > 0) {
+            merge();
+        }
+    }
+
+    /**
+     * Downsampling the observations in the time range.
+     *
+     * Works like the WeatherRetentionService on the database: the observations are split into periods of an hour
+     * or a day in local time and of every period only the observation closest to the middle of it is kept.
+     * The start of the range is found with a binary search and the file is rewritten only when an observation is
+     * deleted.
+     *
+     * @param fromEpochSecond Start of the range in epoch seconds at the start of a period, inclusive.
+     * @param beforeEpochSecond End of the range in epoch seconds, exclusive.
+     * @param period Length of the periods, HOURS or DAYS.
+     * @return Number of deleted observations.
+     * @throws IOException when the file can not be written.
+     */
+    public synchronized int compact(long fromEpochSecond, long beforeEpochSecond, ChronoUnit period)
+            throws IOException {
+        flush();
+        Mapping current = mapping;
+        long halfPeriod = period.getDuration().getSeconds() / 2;
+        BitSet deleted = new BitSet();
+
+        int kept = -1;
+        long middle = 0;
+        long periodEnd = Long.MIN_VALUE;
+        for (int i = current.lowerBound(fromEpochSecond);
+             i < current.size && current.epochSecond(i) < beforeEpochSecond; i++) {
+            long epochSecond = current.epochSecond(i);
+
+            if (epochSecond >= periodEnd) {
+                // The period is found in local time once for every period, not for every observation
+                LocalDateTime start = LocalDateTime.ofInstant(Instant.ofEpochSecond(epochSecond), ZONE)
+                        .truncatedTo(period);
+                middle = start.atZone(ZONE).toEpochSecond() + halfPeriod;
+                periodEnd = start.plus(1, period).atZone(ZONE).toEpochSecond();
+                kept = i;
+            } else if (Math.abs(epochSecond - middle) < Math.abs(current.epochSecond(kept) - middle)) {
+                deleted.set(kept);
+                kept = i;
+            } else {
+                deleted.set(i);
+            }
+        }
+        if (deleted.isEmpty()) {
+            return 0;
+        }
+
+        rewrite(current.size - deleted.cardinality(), target -> {
+            int size = 0;
+            for (int i = 0; i < current.size; i++) {
+                if (!deleted.get(i)) {
+                    target.copy(size++, current, i);
+                }
+            }
+            return size;
+        });
+        return deleted.cardinality();
+    }
+
+    /**
+     * Getting a view of the current archive.
+     *
+     * @return The records that can be read by index directly from the mapped file, later records are not in it.
+     */
+    public WeatherHistory getView() {
+        return mapping;
+    }
+
+    /**
+     * Finding the weather data closest to the chosen time.
+     *
+     * @param epochSecond The chosen time in epoch seconds.
+     * @param tolerance Maximum difference in seconds between the chosen time and the observation.
+     * @return The closest weather data or null if there is no observation within the tolerance.
+     */
+    public WeatherData findClosest(long epochSecond, long tolerance) {
+        Mapping current = mapping;
+        int index = current.findClosest(epochSecond, tolerance);
+        return index == WeatherHistory.NOTFOUND ? null : toWeatherData(current, index);
+    }
+
+    /**
+     * Going through the observations in the time range in time order.
+     *
+     * Works like StationTimeSeries.forEachBetween, but reads the records directly from the mapped file.
+     *
+     * @param fromEpochSecond Start of the range in epoch seconds, inclusive.
+     * @param toEpochSecond End of the range in epoch seconds, inclusive.
+     * @param action Called with the weather data of every observation in the range.
+     */
+    public void forEachBetween(long fromEpochSecond, long toEpochSecond, Consumer<WeatherData> action) {
+        Mapping current = mapping;
+
+        for (int i = current.lowerBound(fromEpochSecond); i < current.size && current.epochSecond(i) <= toEpochSecond;
+             i++) {
+            action.accept(toWeatherData(current, i));
+        }
+    }
+
+    /**
+     * Getting the latest observation in the archive.
+     *
+     * @return The latest weather data or null if the archive is empty.
+     */
+    public WeatherData getLatest() {
+        Mapping current = mapping;
+        return current.size == 0 ? null : toWeatherData(current, current.size - 1);
+    }
+
+    /**
+     * Closing the archive file.
+     *
+     * @throws IOException when the file can not be closed.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        flush();
+        mapping.force();
+        channel.close();
+    }
+
+    // Finds the latest generation and deletes the older ones that could not be deleted when they were replaced
+    private void openLatestGeneration() throws IOException {
+        String prefix = file.getFileName() + ".";
+        List<Path> older = new ArrayList<>();
+        generationFile = file;
+        generation = 0;
+
+        try (Stream<Path> siblings = Files.list(file.toAbsolutePath().getParent())) {
+            for (Path sibling : siblings.toList()) {
+                String name = sibling.getFileName().toString();
+                if (!name.startsWith(prefix) || !name.substring(prefix.length()).matches("[0-9]{1,18}")) {
+                    continue;
+                }
+                long number = Long.parseLong(name.substring(prefix.length()));
+                if (number > generation) {
+                    older.add(generationFile);
+                    generationFile = sibling;
+                    generation = number;
+                } else {
+                    older.add(sibling);
+                }
+            }
+        }
+        for (Path olderFile : older) {
+            deleteIfPossible(olderFile);
+        }
+    }
+
+    private void deleteIfPossible(Path olderFile) {
+        try {
+            Files.deleteIfExists(olderFile);
+        } catch (IOException e) {
+            // Still mapped on Windows, deleted when the archive is opened again
+        }
+    }
+
+    private void map() throws IOException {
+        channel = FileChannel.open(generationFile, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        boolean created = channel.size() == 0;
+        long capacity = Math.max(channel.size(), HEADERSIZE + (long) INITIALCAPACITY * RECORDSIZE);
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+
+        if (created) {
+            buffer.putInt(0, MAGIC);
+            buffer.putInt(4, RECORDSIZE);
+            buffer.putLong(8, 0);
+        } else if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != RECORDSIZE) {
+            channel.close();
+            throw new IOException(generationFile + " is not a weather archive file");
+        }
+        stationName = readStationName(buffer);
+        mapping = new Mapping(buffer, (int) buffer.getLong(8));
+    }
+
+    private void append(List<WeatherData> weatherReports) throws IOException {
+        Mapping current = ensureCapacity(mapping.size + weatherReports.size());
+        int size = current.size;
+        long latest = size > 0 ? current.epochSecond(size - 1) : Long.MIN_VALUE;
+
+        for (WeatherData weatherData : weatherReports) {
+            long epochSecond = StationTimeSeries.toEpochSecond(weatherData.getTimestamp());
+            if (epochSecond > latest) {
+                current.write(size++, epochSecond, weatherData);
+                latest = epochSecond;
+            }
+        }
+        // Published after the records are written
+        current.buffer.putLong(8, size);
+        mapping = current.withSize(size);
+    }
+
+    // The record index is packed into PENDINGINDEXBITS bits when sorting, so the waiting records are merged before
+    // there are more of them
+    private void addPending(WeatherData weatherData) throws IOException {
+        if (pendingSize == maxPending) {
+            merge();
+        }
+        if (pending.capacity() < (pendingSize + 1) * RECORDSIZE) {
+            ByteBuffer grown = ByteBuffer.allocate(Math.max(INITIALCAPACITY, pendingSize * 2) * RECORDSIZE);
+            grown.put(0, pending, 0, pendingSize * RECORDSIZE);
+            pending = grown;
+        }
+        int offset = pendingSize++ * RECORDSIZE;
+        pending.putLong(offset, StationTimeSeries.toEpochSecond(weatherData.getTimestamp()));
+        pending.putFloat(offset + 8, (float) weatherData.getAirTemp());
+        pending.putFloat(offset + 12, (float) weatherData.getWindSpeed());
+        pending.put(offset + 16, weatherData.getPhenomenonClass().getCode());
+    }
+
+    // Merges the archive and the waiting observations in time order, an archived observation wins over a waiting
+    // one of the same time
+    private void merge() throws IOException {
+        Mapping current = mapping;
+        int[] order = sortPending();
+
+        rewrite(current.size + pendingSize, target -> {
+            int size = 0;
+            int index = 0;
+            long latest = Long.MIN_VALUE;
+            for (int record : order) {
+                long epochSecond = pending.getLong(record * RECORDSIZE);
+                while (index < current.size && current.epochSecond(index) <= epochSecond) {
+                    latest = current.epochSecond(index);
+                    target.copy(size++, current, index++);
+                }
+                if (epochSecond > latest) {
+                    target.buffer.put(HEADERSIZE + size++ * RECORDSIZE, pending, record * RECORDSIZE, RECORDSIZE);
+                    latest = epochSecond;
+                }
+            }
+            while (index < current.size) {
+                target.copy(size++, current, index++);
+            }
+            return size;
+        });
+
+        pendingSize = 0;
+        if (pending.capacity() > INITIALCAPACITY * RECORDSIZE) {
+            pending = ByteBuffer.allocate(0);
+        }
+    }
+
+    // Indexes of the waiting records sorted by time. The record index is packed under the time, so a primitive
+    // sort is enough, addPending keeps at most MAXPENDING records
+    private int[] sortPending() {
+        long earliest = Long.MAX_VALUE;
+        for (int i = 0; i < pendingSize; i++) {
+            earliest = Math.min(earliest, pending.getLong(i * RECORDSIZE));
+        }
+        long[] keys = new long[pendingSize];
+        for (int i = 0; i < pendingSize; i++) {
+            keys[i] = (pending.getLong(i * RECORDSIZE) - earliest) << PENDINGINDEXBITS | i;
+        }
+        Arrays.sort(keys);
+
+        int[] order = new int[pendingSize];
+        for (int i = 0; i < pendingSize; i++) {
+            order[i] = (int) (keys[i] & (MAXPENDING - 1));
+        }
+        return order;
+    }
+
+    // Writes the records into the next generation of the file, so the old file is never left half rewritten and
+    // the mapped file is not replaced. The records are written without mapping the new file, a temporary file
+    // that is renamed to the next generation only when it is complete
+    private void rewrite(int records, RecordWriter writer) throws IOException {
+        Mapping current = mapping;
+        Path rewritten = file.resolveSibling(file.getFileName() + ".tmp");
+        Path next = file.resolveSibling(file.getFileName() + "." + (generation + 1));
+
+        Mapping target = new Mapping(ByteBuffer.allocate(HEADERSIZE + Math.max(INITIALCAPACITY, records)
+                * RECORDSIZE), 0);
+        target.buffer.put(0, current.buffer, 0, HEADERSIZE);
+        target.buffer.putLong(8, writer.write(target));
+        try (FileChannel rewrittenChannel = FileChannel.open(rewritten, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            while (target.buffer.hasRemaining()) {
+                rewrittenChannel.write(target.buffer);
+            }
+            rewrittenChannel.force(true);
+        }
+        Files.move(rewritten, next, StandardCopyOption.ATOMIC_MOVE);
+
+        // Readers may still use the old mapping, it stays valid until it is garbage collected
+        channel.close();
+        Path old = generationFile;
+        generationFile = next;
+        generation++;
+        map();
+        deleteIfPossible(old);
+    }
+
+    private Mapping ensureCapacity(int records) throws IOException {
+        Mapping current = mapping;
+        if (HEADERSIZE + (long) records * RECORDSIZE <= current.buffer.capacity()) {
+            return current;
+        }
+        long capacity = HEADERSIZE + (long) Math.max(records, (current.buffer.capacity() - HEADERSIZE)
+                / RECORDSIZE * 2) * RECORDSIZE;
+        return new Mapping(channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity), current.size);
+    }
+
+    private void writeStationName(String name) {
+        if (name == null || name.equals(stationName)) {
+            return;
+        }
+        byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+        int length = Math.min(bytes.length, MAXNAMEBYTES);
+        ByteBuffer buffer = mapping.buffer;
+        buffer.putShort(16, (short) length);
+        buffer.put(18, bytes, 0, length);
+        stationName = name;
+    }
+
+    private static String readStationName(ByteBuffer buffer) {
+        int length = buffer.getShort(16);
+        if (length <= 0) {
+            return null;
+        }
+        byte[] bytes = new byte[Math.min(length, MAXNAMEBYTES)];
+        buffer.get(18, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // The phenomenon text is the description of the class, the recorded text is not kept
+    private WeatherData toWeatherData(Mapping current, int index) {
+        Phenomenon phenomenon = current.getPhenomenonClass(index);
+
+        return new WeatherData(stationName, station.getWmoCode(), current.getAirTemp(index),
+                current.getWindSpeed(index), phenomenon.getDescription(), phenomenon,
+                LocalDateTime.ofInstant(Instant.ofEpochSecond(current.getEpochSecond(index)), ZONE));
+    }
+
+    private interface RecordWriter {
+
+        // Writes the records into the target and returns the number of them
+        int write(Mapping target);
+    }
+
+    private static final class Mapping implements WeatherHistory {
+
+        // The mapped file, or the records of a rewritten file before they are written
+        private final ByteBuffer buffer;
+
+        private final int size;
+
+        private Mapping(ByteBuffer buffer, int size) {
+            this.buffer = buffer;
+            this.size = size;
+        }
+
+        private void force() {
+            if (buffer instanceof MappedByteBuffer mapped) {
+                mapped.force();
+            }
+        }
+
+        private Mapping withSize(int size) {
+            return new Mapping(buffer, size);
+        }
+
+        private long epochSecond(int index) {
+            return buffer.getLong(HEADERSIZE + index * RECORDSIZE);
+        }
+
+        private void write(int index, long epochSecond, WeatherData weatherData) {
+            int offset = HEADERSIZE + index * RECORDSIZE;
+            buffer.putLong(offset, epochSecond);
+            buffer.putFloat(offset + 8, (float) weatherData.getAirTemp());
+            buffer.putFloat(offset + 12, (float) weatherData.getWindSpeed());
+            buffer.put(offset + 16, weatherData.getPhenomenonClass().getCode());
+        }
+
+        private void copy(int index, Mapping source, int sourceIndex) {
+            buffer.put(HEADERSIZE + index * RECORDSIZE, source.buffer, HEADERSIZE + sourceIndex * RECORDSIZE,
+                    RECORDSIZE);
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public long getEpochSecond(int index) {
+            return epochSecond(index);
+        }
+
+        @Override
+        public double getAirTemp(int index) {
+            return buffer.getFloat(HEADERSIZE + index * RECORDSIZE + 8);
+        }
+
+        @Override
+        public double getWindSpeed(int index) {
+            return buffer.getFloat(HEADERSIZE + index * RECORDSIZE + 12);
+        }
+
+        @Override
+        public Phenomenon getPhenomenonClass(int index) {
+            return Phenomenon.fromCode(buffer.get(HEADERSIZE + index * RECORDSIZE + 16));
+        }
+
+        @Override
+        public int lowerBound(long epochSecond) {
+            int low = 0;
+            int high = size;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (epochSecond(middle) < epochSecond) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low;
+        }
+    }
+}
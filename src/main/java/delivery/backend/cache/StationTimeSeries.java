@@ -0,0 +1,287 @@
+package delivery.backend.cache;
+
+import delivery.backend.entities.WeatherData;
+import delivery.backend.enums.Phenomenon;
+import delivery.backend.stations.Station;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * StationTimeSeries object.
+ *
+ * Weather history of one station held in primitive arrays sorted by the observation time:
+ *      - epoch seconds of the observation
+ *      - air temperature
+ *      - wind speed
+ *      - weather phenomenon class code
+ *
+ * Readers use the arrays without locking. A writer only writes past the published size or into new arrays,
+ * so a reader never sees an element that is not fully written.
+ */
+public final class StationTimeSeries {
+
+    private static final ZoneId ZONE = ZoneId.of("Europe/Tallinn");
+
+    private static final int INITIALCAPACITY = 64;
+
+    private final Station station;
+
+    private volatile String stationName;
+
+    private volatile Columns columns = new Columns(INITIALCAPACITY);
+
+    /**
+     * StationTimeSeries object.
+     *
+     * @param station The station which weather history is held.
+     */
+    public StationTimeSeries(Station station) {
+        this.station = station;
+    }
+
+    /**
+     * Getting the number of observations in the history.
+     *
+     * @return The number of observations.
+     */
+    public int size() {
+        return columns.size;
+    }
+
+    /**
+     * Replacing the whole history.
+     *
+     * @param weatherReports Weather history of the station sorted by timestamp.
+     */
+    public synchronized void replaceAll(List<WeatherData> weatherReports) {
+        Columns replaced = new Columns(Math.max(INITIALCAPACITY, weatherReports.size()));
+
+        for (WeatherData weatherData : weatherReports) {
+            stationName = weatherData.getStationName();
+            replaced.insert(replaced.size, weatherData);
+        }
+        columns = replaced;
+    }
+
+    /**
+     * Adding a new observation to the history.
+     *
+     * Observations usually come in time order and are added to the end. An older observation is inserted
+     * to its place, so the history stays sorted.
+     *
+     * @param weatherData Newly imported weather data.
+     */
+    public synchronized void append(WeatherData weatherData) {
+        Columns current = columns;
+        long epochSecond = toEpochSecond(weatherData.getTimestamp());
+        int index = current.upperBound(epochSecond);
+
+        // Elements that readers can see are never changed, the history is copied instead
+        Columns target;
+        if (current.size == current.epochSeconds.length) {
+            target = current.copy(current.epochSeconds.length * 2);
+        } else if (index < current.size) {
+            target = current.copy(current.epochSeconds.length);
+        } else {
+            target = current.withSize(current.size);
+        }
+        stationName = weatherData.getStationName();
+        target.insert(index, weatherData);
+        columns = target;
+    }
+
+    /**
+     * Removing observations from the history.
+     *
+     * The remaining observations are copied into new arrays, so readers of the old arrays are not affected.
+     *
+     * @param removedEpochSeconds Times of the removed observations in epoch seconds, sorted.
+     * @return Number of removed observations.
+     */
+    public synchronized int removeAll(long[] removedEpochSeconds) {
+        Columns current = columns;
+        Columns target = new Columns(current.epochSeconds.length);
+
+        int removed = 0;
+        for (int i = 0; i < current.size; i++) {
+            if (Arrays.binarySearch(removedEpochSeconds, current.epochSeconds[i]) >= 0) {
+                removed++;
+            } else {
+                target.copy(current, i);
+            }
+        }
+        if (removed > 0) {
+            columns = target;
+        }
+        return removed;
+    }
+
+    /**
+     * Getting a view of the current history.
+     *
+     * @return The history that can be read by index without locking, later observations are not in it.
+     */
+    public WeatherHistory getView() {
+        return columns;
+    }
+
+    /**
+     * Going through the observations in the time range in time order.
+     *
+     * The start of the range is found with a binary search, then the history is read once until the end of the range.
+     *
+     * @param fromEpochSecond Start of the range in epoch seconds, inclusive.
+     * @param toEpochSecond End of the range in epoch seconds, inclusive.
+     * @param action Called with the weather data of every observation in the range.
+     */
+    public void forEachBetween(long fromEpochSecond, long toEpochSecond, Consumer<WeatherData> action) {
+        Columns current = columns;
+        String name = stationName;
+
+        for (int i = current.lowerBound(fromEpochSecond);
+             i < current.size && current.epochSeconds[i] <= toEpochSecond; i++) {
+            action.accept(current.toWeatherData(i, station, name));
+        }
+    }
+
+    /**
+     * Getting the latest observation in the history.
+     *
+     * @return The latest weather data or null if the history is empty.
+     */
+    public WeatherData getLatest() {
+        Columns current = columns;
+        return current.size == 0 ? null : current.toWeatherData(current.size - 1, station, stationName);
+    }
+
+    static long toEpochSecond(LocalDateTime timestamp) {
+        return timestamp.atZone(ZONE).toEpochSecond();
+    }
+
+    private static final class Columns implements WeatherHistory {
+
+        private final long[] epochSeconds;
+
+        private final float[] airTemps;
+
+        private final float[] windSpeeds;
+
+        private final byte[] phenomena;
+
+        private int size;
+
+        private Columns(int capacity) {
+            this(new long[capacity], new float[capacity], new float[capacity], new byte[capacity], 0);
+        }
+
+        private Columns(long[] epochSeconds, float[] airTemps, float[] windSpeeds, byte[] phenomena, int size) {
+            this.epochSeconds = epochSeconds;
+            this.airTemps = airTemps;
+            this.windSpeeds = windSpeeds;
+            this.phenomena = phenomena;
+            this.size = size;
+        }
+
+        private Columns copy(int capacity) {
+            return new Columns(Arrays.copyOf(epochSeconds, capacity), Arrays.copyOf(airTemps, capacity),
+                    Arrays.copyOf(windSpeeds, capacity), Arrays.copyOf(phenomena, capacity), size);
+        }
+
+        private Columns withSize(int size) {
+            return new Columns(epochSeconds, airTemps, windSpeeds, phenomena, size);
+        }
+
+        // Copies an element to the end
+        private void copy(Columns source, int index) {
+            epochSeconds[size] = source.epochSeconds[index];
+            airTemps[size] = source.airTemps[index];
+            windSpeeds[size] = source.windSpeeds[index];
+            phenomena[size] = source.phenomena[index];
+            size++;
+        }
+
+        private void insert(int index, WeatherData weatherData) {
+            int moved = size - index;
+            if (moved > 0) {
+                System.arraycopy(epochSeconds, index, epochSeconds, index + 1, moved);
+                System.arraycopy(airTemps, index, airTemps, index + 1, moved);
+                System.arraycopy(windSpeeds, index, windSpeeds, index + 1, moved);
+                System.arraycopy(phenomena, index, phenomena, index + 1, moved);
+            }
+            epochSeconds[index] = toEpochSecond(weatherData.getTimestamp());
+            airTemps[index] = (float) weatherData.getAirTemp();
+            windSpeeds[index] = (float) weatherData.getWindSpeed();
+            phenomena[index] = weatherData.getPhenomenonClass().getCode();
+            size++;
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public long getEpochSecond(int index) {
+            return epochSeconds[index];
+        }
+
+        @Override
+        public double getAirTemp(int index) {
+            return airTemps[index];
+        }
+
+        @Override
+        public double getWindSpeed(int index) {
+            return windSpeeds[index];
+        }
+
+        @Override
+        public Phenomenon getPhenomenonClass(int index) {
+            return Phenomenon.fromCode(phenomena[index]);
+        }
+
+        @Override
+        public int lowerBound(long epochSecond) {
+            int low = 0;
+            int high = size;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (epochSeconds[middle] < epochSecond) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low;
+        }
+
+        // First index with epoch second > the given one
+        private int upperBound(long epochSecond) {
+            int low = 0;
+            int high = size;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (epochSeconds[middle] <= epochSecond) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low;
+        }
+
+        // The phenomenon text is the description of the class, the recorded text is not kept
+        private WeatherData toWeatherData(int index, Station station, String stationName) {
+            Phenomenon phenomenon = Phenomenon.fromCode(phenomena[index]);
+
+            return new WeatherData(stationName, station.getWmoCode(), airTemps[index], windSpeeds[index],
+                    phenomenon.getDescription(), phenomenon,
+                    LocalDateTime.ofInstant(Instant.ofEpochSecond(epochSeconds[index]), ZONE));
+        }
+    }
+}
@@ -0,0 +1,195 @@
+package delivery.backend.cache;
+
+import delivery.backend.entities.WeatherData;
+import delivery.backend.stations.Station;
+import delivery.backend.stations.StationRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+@Component
+public class WeatherArchive {
+
+    private final StationRegistry stationRegistry;
+
+    private final Logger logger = Logger.getLogger(WeatherArchive.class.getName());
+
+    @Value("${weather.archive.directory:}")
+    private String directory;
+
+    // Indexed by station id, empty when the archive is not enabled
+    private StationArchive[] archives = new StationArchive[0];
+
+    // Number of bulk loads in progress, older weather data is merged into the files when the last one finishes
+    private final AtomicInteger bulkLoads = new AtomicInteger();
+
+    /**
+     * WeatherArchive object.
+     *
+     * @param stationRegistry Every station which weather history is archived.
+     */
+    public WeatherArchive(StationRegistry stationRegistry) {
+        this.stationRegistry = stationRegistry;
+    }
+
+    /**
+     * Opening the archive file of every station when the application starts.
+     *
+     * The archive is enabled when weather.archive.directory is set. Every station has its own file named by
+     * the wmo code of the station.
+     *
+     * @throws IOException when the directory or a file can not be opened.
+     */
+    @PostConstruct
+    public void open() throws IOException {
+        if (directory.isEmpty()) {
+            return;
+        }
+        Path path = Files.createDirectories(Path.of(directory));
+
+        StationArchive[] opened = new StationArchive[stationRegistry.size()];
+        long observations = 0;
+        for (Station station : stationRegistry.getStations()) {
+            opened[station.getId()] = StationArchive.open(station, path.resolve(station.getWmoCode() + ".wda"));
+            observations += opened[station.getId()].size();
+        }
+        archives = opened;
+
+        logger.log(Level.INFO, String.format("WEATHER ARCHIVE: Opened %d observations of %d stations in %s",
+                observations, opened.length, path.toAbsolutePath()));
+    }
+
+    /**
+     * Closing the archive files when the application stops.
+     *
+     * @throws IOException when a file can not be closed.
+     */
+    @PreDestroy
+    public void close() throws IOException {
+        for (StationArchive archive : archives) {
+            archive.close();
+        }
+    }
+
+    /**
+     * Checking if the archive is enabled.
+     *
+     * @return true if weather.archive.directory is set.
+     */
+    public boolean isEnabled() {
+        return archives.length > 0;
+    }
+
+    /**
+     * Getting the archive of the station.
+     *
+     * @param station The station near the chosen city.
+     * @return The archive of the station or null if the archive is not enabled.
+     */
+    public StationArchive get(Station station) {
+        return isEnabled() ? archives[station.getId()] : null;
+    }
+
+    /**
+     * Adding newly saved weather data to the archive.
+     *
+     * Weather data of stations that are not in the StationRegistry is not archived.
+     * If an archive file can not be written a warning is logged.
+     *
+     * @param weatherData Newly saved weather data in any order.
+     */
+    public void addAll(Collection<WeatherData> weatherData) {
+        if (!isEnabled() || weatherData.isEmpty()) {
+            return;
+        }
+
+        List<List<WeatherData>> byStation = new ArrayList<>();
+        for (int i = 0; i < archives.length; i++) {
+            byStation.add(new ArrayList<>());
+        }
+        for (WeatherData data : weatherData) {
+            Station station = stationRegistry.get(data.getWmoCode());
+            if (station != null) {
+                byStation.get(station.getId()).add(data);
+            }
+        }
+
+        for (int id = 0; id < archives.length; id++) {
+            List<WeatherData> weatherReports = byStation.get(id);
+            weatherReports.sort(Comparator.comparing(WeatherData::getTimestamp));
+            try {
+                archives[id].addAll(weatherReports, bulkLoads.get() > 0);
+            } catch (IOException e) {
+                // The weather data is saved in the database, only a restart would miss it
+                logger.log(Level.WARNING, "WEATHER ARCHIVE: Could not archive weather data: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Starting to load weather history in many batches.
+     *
+     * Until finishBulkLoad is called, weather data older than the archived one is kept in memory and merged into
+     * the archive files once, instead of rewriting the file of the station for every batch.
+     */
+    public void startBulkLoad() {
+        bulkLoads.incrementAndGet();
+    }
+
+    /**
+     * Finishing a bulk load started with startBulkLoad.
+     *
+     * When no other bulk load is in progress, the older weather data is merged into the archive files.
+     * If an archive file can not be written a warning is logged.
+     */
+    public void finishBulkLoad() {
+        if (bulkLoads.decrementAndGet() > 0) {
+            return;
+        }
+        for (StationArchive archive : archives) {
+            try {
+                archive.flush();
+            } catch (IOException e) {
+                logger.log(Level.WARNING, "WEATHER ARCHIVE: Could not archive weather data: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Downsampling the archived weather data in the time range.
+     *
+     * Keeps the same observations as the WeatherRetentionService keeps in the database, so dated fees are the
+     * same with and without the archive. If an archive file can not be written a warning is logged.
+     *
+     * @param from Start of the range at the start of a period, inclusive, or null to start from the beginning.
+     * @param before Observations before this time are downsampled.
+     * @param period Length of the periods, HOURS or DAYS.
+     * @return Number of deleted observations.
+     */
+    public long compact(LocalDateTime from, LocalDateTime before, ChronoUnit period) {
+        long fromEpochSecond = from == null ? Long.MIN_VALUE : StationTimeSeries.toEpochSecond(from);
+        long deleted = 0;
+        for (StationArchive archive : archives) {
+            try {
+                deleted += archive.compact(fromEpochSecond, StationTimeSeries.toEpochSecond(before), period);
+            } catch (IOException e) {
+                logger.log(Level.WARNING, "WEATHER ARCHIVE: Could not downsample weather data: " + e.getMessage());
+            }
+        }
+        return deleted;
+    }
+}
@@ -0,0 +1,158 @@
+package delivery.backend.cache;
+
+import delivery.backend.entities.WeatherData;
+import delivery.backend.repositories.WeatherRepository;
+import delivery.backend.rules.FeeRulesChangedEvent;
+import delivery.backend.services.FeeCalculator;
+import delivery.backend.stations.Station;
+import delivery.backend.stations.StationRegistry;
+import jakarta.annotation.PostConstruct;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+@Component
+public class WeatherCache {
+
+    private final WeatherRepository weatherRepository;
+
+    private final FeeCalculator feeCalculator;
+
+    private final StationRegistry stationRegistry;
+
+    private final WeatherArchive weatherArchive;
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    private final AtomicReference<WeatherSnapshot> snapshot = new AtomicReference<>(WeatherSnapshot.EMPTY);
+
+    // Indexed by station id
+    private final StationTimeSeries[] history;
+
+    /**
+     * WeatherCache object.
+     *
+     * @param weatherRepository Repository the weather data is loaded from.
+     * @param feeCalculator Calculator the fee matrix is calculated with.
+     * @param stationRegistry Every station which weather data is held.
+     * @param weatherArchive Archive the latest weather data is taken from if the database has none.
+     * @param eventPublisher Publisher of the WeatherSnapshotChangedEvent.
+     */
+    public WeatherCache(WeatherRepository weatherRepository, FeeCalculator feeCalculator,
+                        StationRegistry stationRegistry, WeatherArchive weatherArchive,
+                        ApplicationEventPublisher eventPublisher) {
+        this.weatherRepository = weatherRepository;
+        this.feeCalculator = feeCalculator;
+        this.stationRegistry = stationRegistry;
+        this.weatherArchive = weatherArchive;
+        this.eventPublisher = eventPublisher;
+        this.history = new StationTimeSeries[stationRegistry.size()];
+
+        for (Station station : stationRegistry.getStations()) {
+            history[station.getId()] = new StationTimeSeries(station);
+        }
+    }
+
+    /**
+     * Rebuilding the snapshot and the weather history from the database.
+     *
+     * Runs when the application starts so the weather data is available before the first import.
+     * The latest weather data of a station that has none in the database is taken from the WeatherArchive.
+     */
+    @PostConstruct
+    public void reload() {
+        List<WeatherData> latest = new ArrayList<>();
+
+        for (Station station : stationRegistry.getStations()) {
+            List<WeatherData> weatherReports = weatherRepository
+                    .findAllByWmoCodeOrderByTimestampAsc(station.getWmoCode());
+
+            history[station.getId()].replaceAll(weatherReports);
+            if (!weatherReports.isEmpty()) {
+                latest.add(weatherReports.get(weatherReports.size() - 1));
+            } else if (weatherArchive.isEnabled() && weatherArchive.get(station).getLatest() != null) {
+                // After a restart the in-memory database is empty, but the archive has the weather data
+                latest.add(weatherArchive.get(station).getLatest());
+            }
+        }
+        publishSnapshot(snapshot.updateAndGet(current -> current.replace(latest, stationRegistry, feeCalculator)));
+    }
+
+    /**
+     * Publishing newly imported weather data.
+     *
+     * The fee matrix is calculated with the new weather data and the new snapshot is swapped in atomically,
+     * so a request sees either the old or the new weather data and fees.
+     *
+     * @param weatherData Newly imported weather data.
+     */
+    public void publish(List<WeatherData> weatherData) {
+        for (WeatherData data : weatherData) {
+            Station station = stationRegistry.get(data.getWmoCode());
+            if (station != null) {
+                history[station.getId()].append(data);
+            }
+        }
+        publishSnapshot(snapshot.updateAndGet(current -> current.merge(weatherData, stationRegistry, feeCalculator)));
+    }
+
+    /**
+     * Removing deleted observations from the weather history of the station.
+     *
+     * Used by the retention job instead of reloading the whole history. The snapshot is not changed, because the
+     * latest weather data of a station is only downsampled when the station has stopped reporting.
+     *
+     * @param station The station the observations were deleted from.
+     * @param timestamps Times of the deleted observations.
+     */
+    public void remove(Station station, Collection<LocalDateTime> timestamps) {
+        long[] removed = new long[timestamps.size()];
+        int i = 0;
+        for (LocalDateTime timestamp : timestamps) {
+            removed[i++] = StationTimeSeries.toEpochSecond(timestamp);
+        }
+        Arrays.sort(removed);
+        history[station.getId()].removeAll(removed);
+    }
+
+    /**
+     * Calculating the fee matrix again when the fee rules have changed.
+     *
+     * @param event Event with the new fee rules.
+     */
+    @EventListener
+    public void onFeeRulesChanged(FeeRulesChangedEvent event) {
+        publishSnapshot(snapshot.updateAndGet(current -> current.recalculate(stationRegistry, feeCalculator)));
+    }
+
+    /**
+     * Getting the current snapshot.
+     *
+     * @return The latest published snapshot.
+     */
+    public WeatherSnapshot getSnapshot() {
+        return snapshot.get();
+    }
+
+    /**
+     * Getting the weather history of the station.
+     *
+     * @param station The station near the chosen city.
+     * @return The weather history of the station.
+     */
+    public StationTimeSeries getHistory(Station station) {
+        return history[station.getId()];
+    }
+
+    // Every new snapshot is announced, so the fee stream also gets snapshots that do not come from an import
+    private void publishSnapshot(WeatherSnapshot published) {
+        eventPublisher.publishEvent(new WeatherSnapshotChangedEvent(published));
+    }
+}
@@ -0,0 +1,69 @@
+package delivery.backend.cache;
+
+import delivery.backend.enums.Phenomenon;
+
+/**
+ * WeatherHistory object.
+ *
+ * Read-only view of the weather history of one station, sorted by the observation time. Observations are read
+ * by index from the primitive columns (StationTimeSeries) or the mapped file (StationArchive), so finding weather
+ * data for a fee does not create any objects.
+ *
+ * A view never changes, observations added later are only in the views taken after them, so an index found in
+ * a view stays valid in that view.
+ */
+public interface WeatherHistory {
+
+    int NOTFOUND = -1;
+
+    /**
+     * Getting the number of observations in the view.
+     *
+     * @return The number of observations.
+     */
+    int size();
+
+    /**
+     * Getting the first observation at or after the chosen time.
+     *
+     * @param epochSecond The chosen time in epoch seconds.
+     * @return Index of the observation or size() if every observation is before the chosen time.
+     */
+    int lowerBound(long epochSecond);
+
+    long getEpochSecond(int index);
+
+    double getAirTemp(int index);
+
+    double getWindSpeed(int index);
+
+    Phenomenon getPhenomenonClass(int index);
+
+    /**
+     * Finding the observation closest to the chosen time.
+     *
+     * The closest observations at or before and at or after the chosen time are found with a binary search.
+     * When both are equally close the later one is chosen.
+     *
+     * @param epochSecond The chosen time in epoch seconds.
+     * @param tolerance Maximum difference in seconds between the chosen time and the observation.
+     * @return Index of the closest observation or NOTFOUND if there is no observation within the tolerance.
+     */
+    default int findClosest(long epochSecond, long tolerance) {
+        int after = lowerBound(epochSecond);
+        int before = after < size() && getEpochSecond(after) == epochSecond ? after : after - 1;
+
+        // If date before or after the chosen date does not exist
+        // The difference is the biggest it can be
+        long beforeDiff = before >= 0 ? Math.abs(epochSecond - getEpochSecond(before)) : Long.MAX_VALUE;
+        long afterDiff = after < size() ? Math.abs(getEpochSecond(after) - epochSecond) : Long.MAX_VALUE;
+
+        if (beforeDiff >= afterDiff && afterDiff <= tolerance) {
+            return after;
+        } else if (beforeDiff <= tolerance) {
+            return before;
+        } else {
+            return NOTFOUND;
+        }
+    }
+}
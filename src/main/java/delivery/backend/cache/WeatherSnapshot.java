@@ -0,0 +1,117 @@
+package delivery.backend.cache;
+
+import delivery.backend.entities.WeatherData;
+import delivery.backend.services.FeeCalculator;
+import delivery.backend.stations.Station;
+import delivery.backend.stations.StationRegistry;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * WeatherSnapshot object.
+ *
+ * Immutable view of the latest weather observation for every station.
+ * A new snapshot is created after every import, so readers never see a half updated state.
+ */
+public final class WeatherSnapshot {
+
+    public static final WeatherSnapshot EMPTY = new WeatherSnapshot(0, new WeatherData[0], FeeMatrix.EMPTY);
+
+    private final long version;
+
+    // Indexed by station id
+    private final WeatherData[] latest;
+
+    private final FeeMatrix feeMatrix;
+
+    private WeatherSnapshot(long version, WeatherData[] latest, FeeMatrix feeMatrix) {
+        this.version = version;
+        this.latest = latest;
+        this.feeMatrix = feeMatrix;
+    }
+
+    /**
+     * Getting the version of the snapshot. Every published snapshot has a bigger version than the previous one.
+     *
+     * @return The version of the snapshot.
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Getting the latest weather data of the station.
+     *
+     * @param station The station near the chosen city.
+     * @return The latest weather data or null if there is no data for the station.
+     */
+    public WeatherData get(Station station) {
+        int id = station.getId();
+        return id < latest.length ? latest[id] : null;
+    }
+
+    /**
+     * Getting the delivery fees calculated with the weather data of this snapshot.
+     *
+     * @return The fee matrix of the snapshot.
+     */
+    public FeeMatrix getFeeMatrix() {
+        return feeMatrix;
+    }
+
+    /**
+     * Creating a new snapshot where the given weather data replaces older data of the same station.
+     *
+     * Data that is older than what the snapshot already has and data of unknown stations is ignored.
+     * The fee matrix is calculated again with the merged weather data.
+     *
+     * @param weatherData Newly imported weather data.
+     * @param stationRegistry Every station.
+     * @param feeCalculator Calculator with the fee rules.
+     * @return New snapshot with a bigger version.
+     */
+    WeatherSnapshot merge(Collection<WeatherData> weatherData, StationRegistry stationRegistry,
+                          FeeCalculator feeCalculator) {
+        WeatherData[] merged = Arrays.copyOf(latest, stationRegistry.size());
+
+        for (WeatherData data : weatherData) {
+            Station station = stationRegistry.get(data.getWmoCode());
+            if (station != null) {
+                WeatherData current = merged[station.getId()];
+                if (current == null || !current.getTimestamp().isAfter(data.getTimestamp())) {
+                    merged[station.getId()] = data;
+                }
+            }
+        }
+        return new WeatherSnapshot(version + 1, merged,
+                FeeMatrix.calculate(stationRegistry.getStations(), merged, feeCalculator));
+    }
+
+    /**
+     * Creating a new snapshot with the same weather data and the fee matrix calculated again.
+     *
+     * @param stationRegistry Every station.
+     * @param feeCalculator Calculator with the new fee rules.
+     * @return New snapshot with a bigger version.
+     */
+    WeatherSnapshot recalculate(StationRegistry stationRegistry, FeeCalculator feeCalculator) {
+        WeatherData[] current = Arrays.copyOf(latest, stationRegistry.size());
+        return new WeatherSnapshot(version + 1, current,
+                FeeMatrix.calculate(stationRegistry.getStations(), current, feeCalculator));
+    }
+
+    /**
+     * Creating a new snapshot that contains only the given weather data.
+     *
+     * @param weatherData Latest weather data of every station.
+     * @param stationRegistry Every station.
+     * @param feeCalculator Calculator with the fee rules.
+     * @return New snapshot with a bigger version.
+     */
+    WeatherSnapshot replace(Collection<WeatherData> weatherData, StationRegistry stationRegistry,
+                            FeeCalculator feeCalculator) {
+        return new WeatherSnapshot(version, new WeatherData[0], FeeMatrix.EMPTY)
+                .merge(weatherData, stationRegistry, feeCalculator);
+    }
+}
@@ -0,0 +1,29 @@
+package delivery.backend.cache;
+
+/**
+ * Event that is published when the WeatherCache has swapped in a new snapshot.
+ *
+ * A snapshot changes after an import, a reload (a backfill or the retention job) and new fee rules.
+ */
+public class WeatherSnapshotChangedEvent {
+
+    private final WeatherSnapshot snapshot;
+
+    /**
+     * WeatherSnapshotChangedEvent object.
+     *
+     * @param snapshot The new snapshot.
+     */
+    public WeatherSnapshotChangedEvent(WeatherSnapshot snapshot) {
+        this.snapshot = snapshot;
+    }
+
+    /**
+     * Getting the new snapshot.
+     *
+     * @return The snapshot that was swapped in.
+     */
+    public WeatherSnapshot getSnapshot() {
+        return snapshot;
+    }
+}
@@ -1,26 +1,69 @@
 package delivery.backend.controllers;
 
+import delivery.backend.cache.WeatherCache;
+import delivery.backend.dto.FeeQuoteRequest;
+import delivery.backend.dto.FeeQuoteResponse;
+import delivery.backend.dto.FeeResult;
+import delivery.backend.dto.RepricingResult;
 import delivery.backend.entities.Delivery;
-import delivery.backend.exceptions.ForbiddenUsageOfVehicleException;
+import delivery.backend.enums.RequestStage;
+import delivery.backend.enums.Vehicle;
 import delivery.backend.exceptions.StationNotFoundException;
-import delivery.backend.exceptions.WeatherDataNotFoundException;
-import delivery.backend.exceptions.WrongDateException;
+import delivery.backend.metrics.FeeMetrics;
+import delivery.backend.metrics.RequestTrace;
+import delivery.backend.metrics.SlowRequestLog;
 import delivery.backend.services.DeliveryService;
+import delivery.backend.services.FeeChangeBroadcaster;
+import delivery.backend.services.FeeHistoryService;
+import delivery.backend.services.RepricingService;
+import delivery.backend.stations.StationRegistry;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
-import java.util.Optional;
+import java.util.List;
+import java.util.Map;
 
 
 @RestController
 @RequiredArgsConstructor
 public class DeliveryController {
 
+    // The latest fee can change at any time, caches keep it but ask with the ETag if it is still valid
+    private static final CacheControl LATESTFEECACHE = CacheControl.noCache().cachePublic();
+
     private final DeliveryService deliveryService;
 
+    private final RepricingService repricingService;
+
+    private final FeeHistoryService feeHistoryService;
+
+    private final StationRegistry stationRegistry;
+
+    private final FeeMetrics feeMetrics;
+
+    private final SlowRequestLog slowRequestLog;
+
+    private final WeatherCache weatherCache;
+
+    private final FeeChangeBroadcaster feeChangeBroadcaster;
+
+    private final String instance = Long.toString(System.currentTimeMillis(), 36);
+
     /**
      * Endpoint for calculating the delivery fee based on station (City), vehicle type and (Optional) date.
      *
@@ -28,32 +71,177 @@ public class DeliveryController {
      * With station and vehicle type a Delivery object is constructed with which the calculation of the fee is done
      * using DeliveryService method called "calculateDeliveryFee" that uses the latest weather data.
      *
+     * The latest fee has an ETag made of the station, vehicle type and the version of the WeatherSnapshot. The
+     * snapshot also changes between imports (new fee rules, a backfill or the retention job), so caches must
+     * revalidate the fee on every use. A request with a matching If-None-Match header is answered with
+     * 304 Not Modified without calculating the fee.
+     *
      * If a date is given then the fee is calculated with weather data which has the closest import date to the
      * chosen date.
      *
+     * The duration and the result of every request are recorded in the FeeMetrics. The stages of the request are
+     * timed and a request slower than the threshold is kept in the SlowRequestLog.
+     *
      * @param wmoCode The wmo code of the weather station closest to the chosen city.
      * @param vehicle Type of the vehicle for the deliverer.
      * @param date Chosen date on which the fee calculations should be done.
-     * @return An error message or the calculated delivery fee.
+     * @param breakdown If the base fee and the extra fees should be in the result.
+     * @param webRequest The request with the conditional headers.
+     * @return The status, the calculated delivery fee in cents and the message shown to the customer.
      */
     @GetMapping("/delivery")
-    public String getDeliveryFee(@RequestParam(name = "station") String wmoCode,
-                                 @RequestParam(name = "vehicle") String vehicle,
-                                 @RequestParam(required = false, name = "date") String date) {
+    public ResponseEntity<FeeResult> getDeliveryFee(@RequestParam(name = "station") String wmoCode,
+                                                    @RequestParam(name = "vehicle") String vehicle,
+                                                    @RequestParam(required = false, name = "date") String date,
+                                                    @RequestParam(defaultValue = "false", name = "breakdown")
+                                                    boolean breakdown,
+                                                    WebRequest webRequest) {
+        RequestTrace trace = slowRequestLog.start(System.nanoTime());
+        boolean dated = date != null && !date.isEmpty();
+
+        Delivery delivery;
         try {
-            Delivery delivery = new Delivery(wmoCode, vehicle);
-
-            if (date == null || date.isEmpty()) {
-                return deliveryService.calculateDeliveryFee(delivery, Optional.empty());
-            } else if (LocalDateTime.now().isBefore(LocalDateTime.parse(date))) {
-                throw new WrongDateException("Please do not select a future date");
-            } else {
-                return deliveryService.calculateDeliveryFee(delivery, Optional.of(date));
+            delivery = new Delivery(stationRegistry, wmoCode, vehicle);
+        } catch (StationNotFoundException e) {
+            return ResponseEntity.ok(record(trace, null, wmoCode, vehicle, date, FeeResult.STATION_NOT_FOUND));
+        }
+
+        if (!dated) {
+            slowRequestLog.mark(RequestStage.PARSE);
+            // The version is read before the fee, so the fee is never older than its ETag
+            String eTag = getETag(delivery, breakdown);
+            if (webRequest.checkNotModified(eTag)) {
+                feeMetrics.recordNotModified(delivery, trace.getStartNanos());
+                slowRequestLog.finish(trace, wmoCode, vehicle, null, null);
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).cacheControl(LATESTFEECACHE).build();
             }
+            return ResponseEntity.ok().eTag(eTag).cacheControl(LATESTFEECACHE).body(record(trace, delivery, wmoCode,
+                    vehicle, null, deliveryService.calculateDeliveryFee(delivery, null, breakdown)));
+        }
 
-        } catch (WeatherDataNotFoundException | StationNotFoundException
-                | ForbiddenUsageOfVehicleException | WrongDateException e) {
-            return e.getMessage();
+        LocalDateTime chosenDate = LocalDateTime.parse(date);
+        slowRequestLog.mark(RequestStage.PARSE);
+        if (LocalDateTime.now().isBefore(chosenDate)) {
+            return ResponseEntity.ok(record(trace, delivery, wmoCode, vehicle, date, FeeResult.FUTURE_DATE));
         }
+        return ResponseEntity.ok(record(trace, delivery, wmoCode, vehicle, date,
+                deliveryService.calculateDeliveryFee(delivery, chosenDate, breakdown)));
     }
+
+    /**
+     * Endpoint for calculating the delivery fees of many deliveries in one request.
+     *
+     * The deliveries are sent as a JSON array using POST. Every item has the same fields as the parameters of the
+     * "/delivery" endpoint: station, vehicle and (Optional) date.
+     *
+     * @param requests Deliveries for which the fee should be calculated.
+     * @return Calculated delivery fee or error message of every delivery in the same order as the requests.
+     */
+    @PostMapping("/delivery/batch")
+    public List<FeeQuoteResponse> getDeliveryFees(@RequestBody List<FeeQuoteRequest> requests) {
+        return deliveryService.calculateDeliveryFees(requests);
+    }
+
+    /**
+     * Endpoint for repricing a stream of orders.
+     *
+     * The orders are sent as newline-delimited JSON using POST. Every line has station, vehicle and timestamp.
+     * Priced orders are streamed back as newline-delimited JSON while the request body is still being read.
+     * The last line is the summary of the run: {"summary": {"rows", "errors", "durationNanos", "rowsPerSecond"}}.
+     *
+     * @param request Request with the orders in its body.
+     * @param response Response the priced orders are written to.
+     * @throws IOException when reading the orders or writing the results fails.
+     */
+    @PostMapping(value = "/delivery/reprice", consumes = MediaType.APPLICATION_NDJSON_VALUE)
+    public void repriceOrders(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        if (request.getCharacterEncoding() == null) {
+            request.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        }
+        response.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+
+        RepricingResult result = repricingService.reprice(request.getReader(), response.getWriter());
+        repricingService.writeSummary(result, response.getWriter());
+    }
+
+    /**
+     * Endpoint for getting the delivery fee of a station and vehicle type over a time range.
+     *
+     * The Parameters are sent using GET. The fee of every observation of the station from the start to the end of
+     * the range is calculated with the FeeHistoryService and streamed back as newline-delimited JSON rows with the
+     * timestamp and the fee or the reason why there is no fee (e.g. forbidden).
+     *
+     * @param wmoCode The wmo code of the weather station closest to the chosen city.
+     * @param vehicle Type of the vehicle for the deliverer.
+     * @param from Start of the range, inclusive.
+     * @param to End of the range, inclusive. The current time if not given.
+     * @param response Response the fees are written to.
+     * @throws IOException when writing the fees fails.
+     */
+    @GetMapping(value = "/delivery/history", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public void getFeeHistory(@RequestParam(name = "station") String wmoCode,
+                              @RequestParam(name = "vehicle") String vehicle,
+                              @RequestParam(name = "from") String from,
+                              @RequestParam(required = false, name = "to") String to,
+                              HttpServletResponse response) throws IOException {
+        Delivery delivery;
+        try {
+            delivery = new Delivery(stationRegistry, wmoCode, vehicle);
+        } catch (StationNotFoundException e) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND, FeeResult.STATION_NOT_FOUND.getMessage());
+            return;
+        }
+
+        LocalDateTime fromDate = LocalDateTime.parse(from);
+        LocalDateTime toDate = to == null || to.isEmpty() ? LocalDateTime.now() : LocalDateTime.parse(to);
+        if (toDate.isBefore(fromDate)) {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST, "The end of the range is before the start");
+            return;
+        }
+
+        response.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        feeHistoryService.writeFeeHistory(delivery, fromDate, toDate, response.getWriter());
+    }
+
+    /**
+     * Endpoint for getting the delivery fees of every station and vehicle type at once.
+     *
+     * The fees are calculated with the latest weather data every time new weather data is imported.
+     *
+     * @return Delivery fee result of every station (City) and vehicle type.
+     */
+    @GetMapping("/fees/matrix")
+    public Map<String, Map<Vehicle, FeeResult>> getFeeMatrix() {
+        return deliveryService.getFeeMatrix();
+    }
+
+    /**
+     * Endpoint for subscribing to the delivery fees of every station and vehicle type.
+     *
+     * The fees are sent as server-sent events named "fees": the latest fees at once and the new fees after every
+     * import, with the fee before the import and if the fee or the status (e.g. forbidden) changed.
+     *
+     * @return The stream of fee events.
+     */
+    @GetMapping(value = "/fees/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamFees() {
+        return feeChangeBroadcaster.subscribe();
+    }
+
+    private FeeResult record(RequestTrace trace, Delivery delivery, String wmoCode, String vehicle, String date,
+                             FeeResult result) {
+        boolean dated = date != null && !date.isEmpty();
+        feeMetrics.record(delivery, dated, result, trace.getStartNanos());
+        slowRequestLog.finish(trace, wmoCode, vehicle, date, result.getStatus());
+        return result;
+    }
+
+    // The instance is in the ETag, because the snapshot versions start from the beginning after a restart
+    private String getETag(Delivery delivery, boolean breakdown) {
+        return "\"" + delivery.getStation().getWmoCode() + "-" + delivery.getVehicle().name().toLowerCase()
+                + (breakdown ? "-breakdown-" : "-") + instance + "." + weatherCache.getSnapshot().getVersion() + "\"";
+    }
+
 }
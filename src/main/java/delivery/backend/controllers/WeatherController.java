@@ -0,0 +1,60 @@
+package delivery.backend.controllers;
+
+import delivery.backend.dto.BackfillStatus;
+import delivery.backend.services.WeatherBackfillService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+
+@RestController
+@RequiredArgsConstructor
+public class WeatherController {
+
+    private final WeatherBackfillService weatherBackfillService;
+
+    @Value("${weather.backfill.directory:}")
+    private String backfillDirectory;
+
+    /**
+     * Endpoint for loading the archived observations feeds of the weather.backfill.directory into the database.
+     *
+     * Only the configured directory can be loaded, so the endpoint can not be used to read other files.
+     * The backfill runs in the background and the response is sent at once, the progress is followed with
+     * GET /weather/backfill. Only one backfill runs at a time.
+     *
+     * @return 202 with the status of the started backfill, 409 with the status of the running backfill if one is
+     *         already running or 404 if no directory is configured.
+     */
+    @PostMapping("/weather/backfill")
+    public ResponseEntity<BackfillStatus> backfill() {
+        if (backfillDirectory.isEmpty() || !Files.isDirectory(Path.of(backfillDirectory))) {
+            return ResponseEntity.notFound().build();
+        }
+        BackfillStatus started = weatherBackfillService.startBackfill(Path.of(backfillDirectory));
+        if (started == null) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(weatherBackfillService.getStatus());
+        }
+        return ResponseEntity.accepted().location(URI.create("/weather/backfill")).body(started);
+    }
+
+    /**
+     * Endpoint for following the latest backfill.
+     *
+     * @return The state of the backfill and the number of files and rows when it has finished,
+     *         or 404 if no backfill has been started.
+     */
+    @GetMapping("/weather/backfill")
+    public ResponseEntity<BackfillStatus> getBackfillStatus() {
+        BackfillStatus status = weatherBackfillService.getStatus();
+        return status == null ? ResponseEntity.notFound().build() : ResponseEntity.ok(status);
+    }
+}
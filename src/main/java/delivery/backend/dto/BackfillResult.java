@@ -0,0 +1,57 @@
+package delivery.backend.dto;
+
+import lombok.Getter;
+
+/**
+ * BackfillResult object.
+ *
+ * Summary of loading a directory of archived observations feeds.
+ */
+@Getter
+public class BackfillResult {
+
+    private final long files;
+
+    private final long failedFiles;
+
+    private final long rows;
+
+    private final long newRows;
+
+    private final long durationNanos;
+
+    /**
+     * BackfillResult object.
+     *
+     * @param files Number of feed files in the directory.
+     * @param failedFiles Number of files that could not be read.
+     * @param rows Number of weather data rows read from the files.
+     * @param newRows Number of rows that were not saved before and were saved now.
+     * @param durationNanos Duration of the backfill in nanoseconds.
+     */
+    public BackfillResult(long files, long failedFiles, long rows, long newRows, long durationNanos) {
+        this.files = files;
+        this.failedFiles = failedFiles;
+        this.rows = rows;
+        this.newRows = newRows;
+        this.durationNanos = durationNanos;
+    }
+
+    /**
+     * Getting the read throughput of the backfill.
+     *
+     * @return Files handled per second.
+     */
+    public double getFilesPerSecond() {
+        return durationNanos == 0 ? 0 : files * 1_000_000_000.0 / durationNanos;
+    }
+
+    /**
+     * Getting the write throughput of the backfill.
+     *
+     * @return Rows handled per second.
+     */
+    public double getRowsPerSecond() {
+        return durationNanos == 0 ? 0 : rows * 1_000_000_000.0 / durationNanos;
+    }
+}
@@ -0,0 +1,67 @@
+package delivery.backend.dto;
+
+import delivery.backend.enums.BackfillState;
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+
+/**
+ * BackfillStatus object.
+ *
+ * Status of a weather backfill job that runs in the background.
+ */
+@Getter
+public class BackfillStatus {
+
+    private final long id;
+
+    private final BackfillState state;
+
+    private final String directory;
+
+    private final LocalDateTime started;
+
+    private final BackfillResult result;
+
+    private final String error;
+
+    /**
+     * BackfillStatus object.
+     *
+     * @param id Number of the backfill job since the application started.
+     * @param state State of the backfill job.
+     * @param directory Directory of the archived feeds.
+     * @param started Time when the backfill job started.
+     * @param result Number of files and rows and the duration when the backfill has finished, otherwise null.
+     * @param error Reason of the failure when the backfill has failed, otherwise null.
+     */
+    public BackfillStatus(long id, BackfillState state, String directory, LocalDateTime started,
+                          BackfillResult result, String error) {
+        this.id = id;
+        this.state = state;
+        this.directory = directory;
+        this.started = started;
+        this.result = result;
+        this.error = error;
+    }
+
+    /**
+     * Getting the status of the finished backfill job.
+     *
+     * @param result Number of files and rows and the duration of the backfill.
+     * @return The finished status.
+     */
+    public BackfillStatus finish(BackfillResult result) {
+        return new BackfillStatus(id, BackfillState.FINISHED, directory, started, result, null);
+    }
+
+    /**
+     * Getting the status of the failed backfill job.
+     *
+     * @param error Reason of the failure.
+     * @return The failed status.
+     */
+    public BackfillStatus fail(String error) {
+        return new BackfillStatus(id, BackfillState.FAILED, directory, started, null, error);
+    }
+}
@@ -0,0 +1,35 @@
+package delivery.backend.dto;
+
+import lombok.Getter;
+
+/**
+ * CompactionResult object.
+ *
+ * Summary of one run of downsampling the old weather data.
+ */
+@Getter
+public class CompactionResult {
+
+    private final long checkedRows;
+
+    private final long deletedRows;
+
+    private final long deletedArchiveRows;
+
+    private final long durationNanos;
+
+    /**
+     * CompactionResult object.
+     *
+     * @param checkedRows Number of weather data rows older than the raw retention period.
+     * @param deletedRows Number of rows that were deleted, the rest of the checked rows are kept.
+     * @param deletedArchiveRows Number of observations that were deleted from the WeatherArchive.
+     * @param durationNanos Duration of the compaction in nanoseconds.
+     */
+    public CompactionResult(long checkedRows, long deletedRows, long deletedArchiveRows, long durationNanos) {
+        this.checkedRows = checkedRows;
+        this.deletedRows = deletedRows;
+        this.deletedArchiveRows = deletedArchiveRows;
+        this.durationNanos = durationNanos;
+    }
+}
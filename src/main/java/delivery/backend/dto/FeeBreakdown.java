@@ -0,0 +1,39 @@
+package delivery.backend.dto;
+
+import lombok.Getter;
+
+/**
+ * FeeBreakdown object.
+ *
+ * Parts of a delivery fee in cents:
+ *      - rbf (regional base fee)
+ *      - atef (air temperature extra fee)
+ *      - wsef (wind speed extra fee)
+ *      - wpef (weather phenomenon extra fee)
+ */
+@Getter
+public class FeeBreakdown {
+
+    private final int baseFeeCents;
+
+    private final int airTemperatureFeeCents;
+
+    private final int windSpeedFeeCents;
+
+    private final int phenomenonFeeCents;
+
+    /**
+     * FeeBreakdown object.
+     *
+     * @param baseFeeCents Regional base fee in cents.
+     * @param airTemperatureFeeCents Air temperature extra fee in cents.
+     * @param windSpeedFeeCents Wind speed extra fee in cents.
+     * @param phenomenonFeeCents Weather phenomenon extra fee in cents.
+     */
+    public FeeBreakdown(int baseFeeCents, int airTemperatureFeeCents, int windSpeedFeeCents, int phenomenonFeeCents) {
+        this.baseFeeCents = baseFeeCents;
+        this.airTemperatureFeeCents = airTemperatureFeeCents;
+        this.windSpeedFeeCents = windSpeedFeeCents;
+        this.phenomenonFeeCents = phenomenonFeeCents;
+    }
+}
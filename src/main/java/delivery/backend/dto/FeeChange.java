@@ -0,0 +1,56 @@
+package delivery.backend.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import delivery.backend.enums.FeeStatus;
+import delivery.backend.enums.Vehicle;
+import delivery.backend.stations.Station;
+import lombok.Getter;
+
+/**
+ * FeeChange object.
+ *
+ * The latest delivery fee of a station and vehicle type after an import, with the fee before the import.
+ */
+@Getter
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class FeeChange {
+
+    private final String station;
+
+    private final int wmoCode;
+
+    private final String vehicle;
+
+    private final FeeStatus status;
+
+    private final int feeCents;
+
+    private final String message;
+
+    private final FeeStatus previousStatus;
+
+    private final Integer previousFeeCents;
+
+    private final boolean changed;
+
+    /**
+     * FeeChange object.
+     *
+     * @param station The station near the city.
+     * @param vehicle Type of the vehicle for the deliverer.
+     * @param result The fee calculated with the new weather data.
+     * @param previous The fee before the import or null if there was none.
+     */
+    public FeeChange(Station station, Vehicle vehicle, FeeResult result, FeeResult previous) {
+        this.station = station.getCity();
+        this.wmoCode = station.getWmoCode();
+        this.vehicle = vehicle.name().toLowerCase();
+        this.status = result.getStatus();
+        this.feeCents = result.getFeeCents();
+        this.message = result.getMessage();
+        this.previousStatus = previous == null ? null : previous.getStatus();
+        this.previousFeeCents = previous == null ? null : previous.getFeeCents();
+        this.changed = previous == null || previous.getStatus() != result.getStatus()
+                || previous.getFeeCents() != result.getFeeCents();
+    }
+}
@@ -0,0 +1,43 @@
+package delivery.backend.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import delivery.backend.enums.FeeStatus;
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+
+/**
+ * FeeHistoryRow object.
+ *
+ * The delivery fee calculated with one observation of a station. Has either the fee or an error message,
+ * e.g. when the vehicle type is forbidden in that weather.
+ */
+@Getter
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class FeeHistoryRow {
+
+    private final LocalDateTime timestamp;
+
+    private final FeeStatus status;
+
+    private final String fee;
+
+    private final Integer feeCents;
+
+    private final String error;
+
+    /**
+     * FeeHistoryRow object.
+     *
+     * @param timestamp Time of the observation.
+     * @param result The fee calculated with the observation.
+     */
+    public FeeHistoryRow(LocalDateTime timestamp, FeeResult result) {
+        boolean ok = result.getStatus() == FeeStatus.OK;
+        this.timestamp = timestamp;
+        this.status = result.getStatus();
+        this.fee = ok ? result.getMessage() : null;
+        this.feeCents = ok ? result.getFeeCents() : null;
+        this.error = ok ? null : result.getMessage();
+    }
+}
@@ -0,0 +1,25 @@
+package delivery.backend.dto;
+
+import com.fasterxml.jackson.annotation.JsonAlias;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * FeeQuoteRequest object.
+ *
+ * One item of a batch fee request. Has the same fields as the parameters of the "/delivery" endpoint.
+ * The date can also be sent as "timestamp", which is used by order files.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+public class FeeQuoteRequest {
+
+    private String station;
+
+    private String vehicle;
+
+    @JsonAlias("timestamp")
+    private String date;
+}
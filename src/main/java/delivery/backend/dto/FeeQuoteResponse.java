@@ -0,0 +1,44 @@
+package delivery.backend.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import delivery.backend.enums.FeeStatus;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * FeeQuoteResponse object.
+ *
+ * Result of one item of a batch fee request. Has either the calculated fee or an error message.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class FeeQuoteResponse {
+
+    private String station;
+
+    private String vehicle;
+
+    private String date;
+
+    private FeeStatus status;
+
+    private String fee;
+
+    private Integer feeCents;
+
+    private String error;
+
+    /**
+     * FeeQuoteResponse object.
+     *
+     * @param request The batch item this response is for.
+     */
+    public FeeQuoteResponse(FeeQuoteRequest request) {
+        this.station = request.getStation();
+        this.vehicle = request.getVehicle();
+        this.date = request.getDate();
+    }
+}
@@ -0,0 +1,77 @@
+package delivery.backend.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import delivery.backend.enums.FeeStatus;
+import lombok.Getter;
+
+/**
+ * FeeResult object.
+ *
+ * Result of a delivery fee calculation: the status, the fee in cents and (Optional) the parts of the fee.
+ * Results without a fee are shared constants, so an error does not create new objects.
+ */
+@Getter
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public final class FeeResult {
+
+    public static final FeeResult FORBIDDEN = new FeeResult(FeeStatus.FORBIDDEN, 0,
+            "Usage of selected vehicle type is forbidden", null);
+
+    public static final FeeResult WRONG_DATE = new FeeResult(FeeStatus.WRONG_DATE, 0,
+            "We can't calculate fee for this date. Our closest weather data is more than 1 day apart", null);
+
+    public static final FeeResult FUTURE_DATE = new FeeResult(FeeStatus.WRONG_DATE, 0,
+            "Please do not select a future date", null);
+
+    public static final FeeResult WEATHER_DATA_NOT_FOUND = new FeeResult(FeeStatus.WEATHER_DATA_NOT_FOUND, 0,
+            "Did not find weather data for station", null);
+
+    public static final FeeResult STATION_NOT_FOUND = new FeeResult(FeeStatus.STATION_NOT_FOUND, 0,
+            "Weather station for this city was not found", null);
+
+    private final FeeStatus status;
+
+    private final int feeCents;
+
+    private final String message;
+
+    private final FeeBreakdown breakdown;
+
+    private FeeResult(FeeStatus status, int feeCents, String message, FeeBreakdown breakdown) {
+        this.status = status;
+        this.feeCents = feeCents;
+        this.message = message;
+        this.breakdown = breakdown;
+    }
+
+    /**
+     * Creating the result of a successful calculation.
+     *
+     * @param feeCents The delivery fee in cents.
+     * @param breakdown Parts of the delivery fee or null if they were not asked for.
+     * @return The result with the fee.
+     */
+    public static FeeResult of(int feeCents, FeeBreakdown breakdown) {
+        return new FeeResult(FeeStatus.OK, feeCents, null, breakdown);
+    }
+
+    /**
+     * Getting the message shown to the customer.
+     *
+     * @return The formatted delivery fee or the error message.
+     */
+    public String getMessage() {
+        return message != null ? message : formatCents(feeCents);
+    }
+
+    /**
+     * Formatting a fee in cents the way it is shown to the customer.
+     *
+     * @param cents The fee in cents.
+     * @return The fee in euros with the currency, for example "4.50 €".
+     */
+    public static String formatCents(int cents) {
+        int remainder = cents % 100;
+        return (cents / 100) + (remainder < 10 ? ".0" : ".") + remainder + " €";
+    }
+}
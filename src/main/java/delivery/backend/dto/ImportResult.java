@@ -0,0 +1,40 @@
+package delivery.backend.dto;
+
+import lombok.Getter;
+
+/**
+ * ImportResult object.
+ *
+ * Summary of saving one import cycle of weather data.
+ */
+@Getter
+public class ImportResult {
+
+    private final long rows;
+
+    private final long newRows;
+
+    private final long durationNanos;
+
+    /**
+     * ImportResult object.
+     *
+     * @param rows Number of weather data rows in the import cycle.
+     * @param newRows Number of rows that were not saved before and were saved now.
+     * @param durationNanos Duration of saving the rows in nanoseconds.
+     */
+    public ImportResult(long rows, long newRows, long durationNanos) {
+        this.rows = rows;
+        this.newRows = newRows;
+        this.durationNanos = durationNanos;
+    }
+
+    /**
+     * Getting the write throughput of the import.
+     *
+     * @return Rows of the import cycle handled per second.
+     */
+    public double getRowsPerSecond() {
+        return durationNanos == 0 ? 0 : rows * 1_000_000_000.0 / durationNanos;
+    }
+}
@@ -0,0 +1,40 @@
+package delivery.backend.dto;
+
+import lombok.Getter;
+
+/**
+ * RepricingResult object.
+ *
+ * Summary of a repricing run.
+ */
+@Getter
+public class RepricingResult {
+
+    private final long rows;
+
+    private final long errors;
+
+    private final long durationNanos;
+
+    /**
+     * RepricingResult object.
+     *
+     * @param rows Number of priced orders.
+     * @param errors Number of orders that got an error instead of a fee.
+     * @param durationNanos Duration of the run in nanoseconds.
+     */
+    public RepricingResult(long rows, long errors, long durationNanos) {
+        this.rows = rows;
+        this.errors = errors;
+        this.durationNanos = durationNanos;
+    }
+
+    /**
+     * Getting the throughput of the run.
+     *
+     * @return Priced orders per second.
+     */
+    public double getRowsPerSecond() {
+        return durationNanos == 0 ? 0 : rows * 1_000_000_000.0 / durationNanos;
+    }
+}
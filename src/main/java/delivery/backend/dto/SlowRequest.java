@@ -0,0 +1,86 @@
+package delivery.backend.dto;
+
+import delivery.backend.enums.FeeStatus;
+import delivery.backend.enums.RequestStage;
+import lombok.AccessLevel;
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * SlowRequest object.
+ *
+ * A delivery fee request that took longer than the slow request threshold, with the time spent in every stage.
+ */
+@Getter
+public class SlowRequest {
+
+    private final long sequence;
+
+    private final LocalDateTime time;
+
+    private final String station;
+
+    private final String vehicle;
+
+    private final String date;
+
+    private final FeeStatus status;
+
+    private final long totalMicros;
+
+    @Getter(AccessLevel.NONE)
+    private final long[] stageNanos;
+
+    /**
+     * SlowRequest object.
+     *
+     * @param sequence Number of slow requests recorded before this one.
+     * @param time When the request finished.
+     * @param station The station parameter of the request.
+     * @param vehicle The vehicle parameter of the request.
+     * @param date The date parameter of the request or null.
+     * @param status Status of the fee result.
+     * @param totalNanos Duration of the whole request in nanoseconds.
+     * @param stageNanos Duration of every stage in nanoseconds, indexed by the stage ordinal.
+     */
+    public SlowRequest(long sequence, LocalDateTime time, String station, String vehicle, String date,
+                       FeeStatus status, long totalNanos, long[] stageNanos) {
+        this.sequence = sequence;
+        this.time = time;
+        this.station = station;
+        this.vehicle = vehicle;
+        this.date = date;
+        this.status = status;
+        this.totalMicros = totalNanos / 1000;
+        this.stageNanos = stageNanos;
+    }
+
+    /**
+     * Getting the time spent in every stage of the request.
+     *
+     * @return Microseconds spent in every stage.
+     */
+    public Map<RequestStage, Long> getStageMicros() {
+        Map<RequestStage, Long> stageMicros = new EnumMap<>(RequestStage.class);
+        for (RequestStage stage : RequestStage.values()) {
+            stageMicros.put(stage, stageNanos[stage.ordinal()] / 1000);
+        }
+        return stageMicros;
+    }
+
+    /**
+     * Getting the time spent outside the stages, e.g. in a stage that failed or in recording the metrics.
+     *
+     * @return Microseconds of the request that do not belong to a stage.
+     */
+    public long getOtherMicros() {
+        long stages = 0;
+        for (long nanos : stageNanos) {
+            stages += nanos;
+        }
+        return totalMicros - stages / 1000;
+    }
+}
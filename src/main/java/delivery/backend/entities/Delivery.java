@@ -1,8 +1,9 @@
 package delivery.backend.entities;
 
-import delivery.backend.enums.Station;
 import delivery.backend.enums.Vehicle;
 import delivery.backend.exceptions.StationNotFoundException;
+import delivery.backend.stations.Station;
+import delivery.backend.stations.StationRegistry;
 import lombok.Getter;
 import lombok.Setter;
 
@@ -18,14 +19,16 @@ public class Delivery {
      * Delivery object.
      *
      * Has two fields: Station and Vehicle
-     * Enums are used so no random stations or vehicles can be used.
+     * The station is taken from the StationRegistry and the vehicle type is an enum,
+     * so no random stations or vehicles can be used.
      *
+     * @param stationRegistry Every station deliveries are made near.
      * @param wmoCode The wmo code of the nearest station to the chosen city.
      * @param vehicle Type of the vehicle for the deliverer.
      * @throws StationNotFoundException when a station with the given wmoCode is not found.
      */
-    public Delivery(String wmoCode, String vehicle) throws StationNotFoundException {
-        this.station = Station.fromWmoCode(Integer.parseInt(wmoCode));
+    public Delivery(StationRegistry stationRegistry, String wmoCode, String vehicle) throws StationNotFoundException {
+        this.station = stationRegistry.fromWmoCode(Integer.parseInt(wmoCode));
         this.vehicle = Vehicle.valueOf(vehicle.toUpperCase());
     }
 }
@@ -1,8 +1,13 @@
 package delivery.backend.entities;
 
+import delivery.backend.enums.Phenomenon;
 import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.SequenceGenerator;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
 import lombok.Getter;
 import lombok.Setter;
 import lombok.NoArgsConstructor;
@@ -10,13 +15,18 @@ import lombok.NoArgsConstructor;
 import java.time.LocalDateTime;
 
 @Entity
+// One observation per station and time, the unique index is also used to find the weather data of a station
+@Table(uniqueConstraints = @UniqueConstraint(name = "uk_weather_data_wmo_code_timestamp",
+        columnNames = {"wmoCode", "timestamp"}))
 @Getter
 @Setter
 @NoArgsConstructor
 public class WeatherData {
 
+    // Ids are taken from the sequence in blocks of the JDBC batch size, so a batch of inserts needs no extra queries
     @Id
-    @GeneratedValue
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "weather_data_seq")
+    @SequenceGenerator(name = "weather_data_seq", sequenceName = "weather_data_seq", allocationSize = 50)
     private Long id;
 
     private String stationName;
@@ -29,6 +39,8 @@ public class WeatherData {
 
     private String phenomenon;
 
+    private Phenomenon phenomenonClass = Phenomenon.NONE;
+
     private LocalDateTime timestamp;
 
 
@@ -48,11 +60,28 @@ public class WeatherData {
      */
     public WeatherData(String stationName, Integer wmoCode, double airTemp,
                        double windSpeed, String phenomenon, LocalDateTime timestamp) {
+        this(stationName, wmoCode, airTemp, windSpeed, phenomenon, Phenomenon.classify(phenomenon), timestamp);
+    }
+
+    /**
+     * WeatherData object with an already classified weather phenomenon.
+     *
+     * @param stationName The name of the weather station.
+     * @param wmoCode The wmo code of the weather station.
+     * @param airTemp Air temperature recorded at the weather station.
+     * @param windSpeed Wind speed recorded at the weather station.
+     * @param phenomenon Weather phenomenon recorded at the weather station.
+     * @param phenomenonClass Class of the weather phenomenon used in the calculation of the delivery fee.
+     * @param timestamp Time at which these recordings were taken at the weather station.
+     */
+    public WeatherData(String stationName, Integer wmoCode, double airTemp, double windSpeed,
+                       String phenomenon, Phenomenon phenomenonClass, LocalDateTime timestamp) {
         this.stationName = stationName;
         this.wmoCode = wmoCode;
         this.airTemp = airTemp;
         this.windSpeed = windSpeed;
         this.phenomenon = phenomenon;
+        this.phenomenonClass = phenomenonClass;
         this.timestamp = timestamp;
     }
 }
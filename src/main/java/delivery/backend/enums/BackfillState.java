@@ -0,0 +1,14 @@
+package delivery.backend.enums;
+
+/**
+ * States of a weather backfill job.
+ *
+ * RUNNING   - the files are being loaded
+ * FINISHED  - every file was handled, files that could not be read are counted in the result
+ * FAILED    - the directory could not be read or the backfill was interrupted
+ */
+public enum BackfillState {
+
+    RUNNING, FINISHED, FAILED
+
+}
@@ -0,0 +1,10 @@
+package delivery.backend.enums;
+
+/**
+ * Outcomes of a delivery fee calculation.
+ */
+public enum FeeStatus {
+
+    OK, FORBIDDEN, WRONG_DATE, WEATHER_DATA_NOT_FOUND, STATION_NOT_FOUND
+
+}
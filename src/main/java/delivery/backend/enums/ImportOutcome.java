@@ -0,0 +1,10 @@
+package delivery.backend.enums;
+
+/**
+ * Outcomes of a weather import cycle.
+ */
+public enum ImportOutcome {
+
+    SUCCESS, NOT_MODIFIED, FAILURE, TIMEOUT
+
+}
@@ -0,0 +1,79 @@
+package delivery.backend.enums;
+
+/**
+ * Weather phenomenon classes that affect the delivery fee.
+ *
+ * Consists of CLASS(description that gives the same fee as the class)
+ */
+public enum Phenomenon {
+
+    NONE(""),
+    RAIN("Rain"),
+    SNOW("Snow"),
+    DANGEROUS("Thunder");
+
+    private static final Phenomenon[] CODES = values();
+
+    private final String description;
+
+    Phenomenon(String description) {
+        this.description = description;
+    }
+
+    /**
+     * Getting the compact code of the phenomenon class.
+     *
+     * @return The code of the phenomenon class.
+     */
+    public byte getCode() {
+        return (byte) ordinal();
+    }
+
+    /**
+     * Getting a weather phenomenon description that belongs to this class.
+     *
+     * @return The description of the phenomenon class.
+     */
+    public String getDescription() {
+        return description;
+    }
+
+    /**
+     * Getting the phenomenon class from its compact code.
+     *
+     * @param code The code of the phenomenon class.
+     * @return The phenomenon class.
+     */
+    public static Phenomenon fromCode(byte code) {
+        return CODES[code];
+    }
+
+    /**
+     * Classifying the weather phenomenon recorded at the weather station.
+     *
+     *      - Rain                   - RAIN
+     *      - Snow and sleet         - SNOW
+     *      - Glaze, hail or thunder - DANGEROUS
+     *      - Everything else        - NONE
+     *
+     * @param phenomenon Weather phenomenon recorded at the weather station.
+     * @return The phenomenon class.
+     */
+    public static Phenomenon classify(String phenomenon) {
+
+        if (phenomenon == null) {
+            return NONE;
+        }
+        String lowerCase = phenomenon.toLowerCase();
+
+        if (lowerCase.contains("rain")) {
+            return RAIN;
+        } else if (lowerCase.contains("snow") || lowerCase.contains("sleet")) {
+            return SNOW;
+        } else if (lowerCase.contains("glaze") || lowerCase.contains("hail") || lowerCase.contains("thunder")) {
+            return DANGEROUS;
+        } else {
+            return NONE;
+        }
+    }
+}
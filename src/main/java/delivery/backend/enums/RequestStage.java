@@ -0,0 +1,14 @@
+package delivery.backend.enums;
+
+/**
+ * Stages of a delivery fee request that are timed separately.
+ *
+ * PARSE            - finding the station and vehicle type and parsing the date
+ * WEATHER_LOOKUP   - finding the weather data of the station
+ * FEE_CALCULATION  - calculating the fee or reading it from the fee matrix
+ */
+public enum RequestStage {
+
+    PARSE, WEATHER_LOOKUP, FEE_CALCULATION
+
+}
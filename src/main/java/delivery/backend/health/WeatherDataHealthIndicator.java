@@ -0,0 +1,49 @@
+package delivery.backend.health;
+
+import delivery.backend.cache.WeatherCache;
+import delivery.backend.cache.WeatherSnapshot;
+import delivery.backend.stations.Station;
+import delivery.backend.stations.StationRegistry;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.stereotype.Component;
+
+/**
+ * WeatherDataHealthIndicator object.
+ *
+ * Tells if the application has weather data to calculate fees with. It is part of the readiness group
+ * (/actuator/health/readiness), so traffic is sent to the application only after the weather data of at least one
+ * station is restored from the WeatherArchive or imported.
+ */
+@Component
+@RequiredArgsConstructor
+public class WeatherDataHealthIndicator implements HealthIndicator {
+
+    private final WeatherCache weatherCache;
+
+    private final StationRegistry stationRegistry;
+
+    /**
+     * Checking the current snapshot of the WeatherCache.
+     *
+     * @return UP if a station has weather data, OUT_OF_SERVICE otherwise.
+     */
+    @Override
+    public Health health() {
+        WeatherSnapshot snapshot = weatherCache.getSnapshot();
+
+        int stationsWithWeatherData = 0;
+        for (Station station : stationRegistry.getStations()) {
+            if (snapshot.get(station) != null) {
+                stationsWithWeatherData++;
+            }
+        }
+
+        Health.Builder health = stationsWithWeatherData > 0 ? Health.up() : Health.outOfService();
+        return health.withDetail("stationsWithWeatherData", stationsWithWeatherData)
+                .withDetail("stations", stationRegistry.size())
+                .withDetail("snapshotVersion", snapshot.getVersion())
+                .build();
+    }
+}
@@ -0,0 +1,115 @@
+package delivery.backend.metrics;
+
+import delivery.backend.dto.FeeResult;
+import delivery.backend.entities.Delivery;
+import delivery.backend.enums.FeeStatus;
+import delivery.backend.enums.Vehicle;
+import delivery.backend.stations.Station;
+import delivery.backend.stations.StationRegistry;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * FeeMetrics object.
+ *
+ * Meters of the delivery fee requests:
+ *      - delivery.fee.requests     - Timer by station, vehicle type and if the request has a date
+ *      - delivery.fee.results      - Counter by the status of the fee result
+ *      - delivery.fee.not.modified - Counter of requests answered with 304 Not Modified
+ *
+ * Every meter is registered when the application starts and held in arrays indexed by station id, vehicle type
+ * ordinal and status ordinal, so recording a request does not look up meters or create tags.
+ */
+@Component
+public class FeeMetrics {
+
+    // Indexed by station id, vehicle type ordinal and 1 if the request has a date
+    private final Timer[][][] requestTimers;
+
+    // Requests for a station that is not in the StationRegistry, indexed by 1 if the request has a date
+    private final Timer[] unknownStationTimers = new Timer[2];
+
+    // Indexed by fee status ordinal
+    private final Counter[] resultCounters = new Counter[FeeStatus.values().length];
+
+    private final Counter notModifiedCounter;
+
+    /**
+     * FeeMetrics object.
+     *
+     * @param meterRegistry Registry the meters are registered in.
+     * @param stationRegistry Every station fees are requested for.
+     */
+    public FeeMetrics(MeterRegistry meterRegistry, StationRegistry stationRegistry) {
+        requestTimers = new Timer[stationRegistry.size()][Vehicle.values().length][2];
+
+        for (Station station : stationRegistry.getStations()) {
+            for (Vehicle vehicle : Vehicle.values()) {
+                for (int dated = 0; dated < 2; dated++) {
+                    requestTimers[station.getId()][vehicle.ordinal()][dated] = requestTimer(meterRegistry,
+                            station.getCity(), vehicle.name().toLowerCase(), dated == 1);
+                }
+            }
+        }
+        for (int dated = 0; dated < 2; dated++) {
+            unknownStationTimers[dated] = requestTimer(meterRegistry, "unknown", "unknown", dated == 1);
+        }
+
+        for (FeeStatus status : FeeStatus.values()) {
+            resultCounters[status.ordinal()] = Counter.builder("delivery.fee.results")
+                    .description("Delivery fee results by status")
+                    .tag("status", status.name())
+                    .register(meterRegistry);
+        }
+        notModifiedCounter = Counter.builder("delivery.fee.not.modified")
+                .description("Requests for the latest fee answered with 304 Not Modified")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Recording a delivery fee request.
+     *
+     * @param delivery The station and vehicle type of the request or null if the station was not found.
+     * @param dated If the fee was requested for a date.
+     * @param result The result of the request.
+     * @param startNanos System.nanoTime() when the request started.
+     * @return The result of the request.
+     */
+    public FeeResult record(Delivery delivery, boolean dated, FeeResult result, long startNanos) {
+        requestTimer(delivery, dated).record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+        resultCounters[result.getStatus().ordinal()].increment();
+        return result;
+    }
+
+    /**
+     * Recording a request for the latest fee that was answered with 304 Not Modified.
+     *
+     * @param delivery The station and vehicle type of the request.
+     * @param startNanos System.nanoTime() when the request started.
+     */
+    public void recordNotModified(Delivery delivery, long startNanos) {
+        requestTimer(delivery, false).record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+        notModifiedCounter.increment();
+    }
+
+    private Timer requestTimer(Delivery delivery, boolean dated) {
+        int datedIndex = dated ? 1 : 0;
+        return delivery == null
+                ? unknownStationTimers[datedIndex]
+                : requestTimers[delivery.getStation().getId()][delivery.getVehicle().ordinal()][datedIndex];
+    }
+
+    private static Timer requestTimer(MeterRegistry meterRegistry, String station, String vehicle, boolean dated) {
+        return Timer.builder("delivery.fee.requests")
+                .description("Duration of delivery fee requests")
+                .tag("station", station)
+                .tag("vehicle", vehicle)
+                .tag("dated", String.valueOf(dated))
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+}
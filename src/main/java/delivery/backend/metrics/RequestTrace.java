@@ -0,0 +1,59 @@
+package delivery.backend.metrics;
+
+import delivery.backend.enums.RequestStage;
+
+import java.util.Arrays;
+
+/**
+ * RequestTrace object.
+ *
+ * Durations of the stages of the delivery fee request handled by the current thread. Every thread reuses its own
+ * trace, so timing a request does not allocate.
+ */
+public final class RequestTrace {
+
+    private final long[] stageNanos = new long[RequestStage.values().length];
+
+    private long startNanos;
+
+    private long lastNanos;
+
+    private boolean active;
+
+    RequestTrace() {
+    }
+
+    /**
+     * Getting the time the request started.
+     *
+     * @return System.nanoTime() when the request started.
+     */
+    public long getStartNanos() {
+        return startNanos;
+    }
+
+    void start(long nanos) {
+        startNanos = nanos;
+        lastNanos = nanos;
+        active = true;
+        Arrays.fill(stageNanos, 0);
+    }
+
+    // The time since the previous mark belongs to the stage
+    void mark(RequestStage stage) {
+        if (active) {
+            long now = System.nanoTime();
+            stageNanos[stage.ordinal()] += now - lastNanos;
+            lastNanos = now;
+        }
+    }
+
+    long finish() {
+        active = false;
+        return System.nanoTime() - startNanos;
+    }
+
+    long[] copyStageNanos() {
+        return stageNanos.clone();
+    }
+}
@@ -0,0 +1,130 @@
+package delivery.backend.metrics;
+
+import delivery.backend.dto.SlowRequest;
+import delivery.backend.enums.FeeStatus;
+import delivery.backend.enums.RequestStage;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * SlowRequestLog object.
+ *
+ * Times the stages of every delivery fee request and keeps the latest requests that took longer than
+ * delivery.slow-requests.threshold in a ring buffer of delivery.slow-requests.capacity requests.
+ *
+ * Timing a request only reads System.nanoTime() between the stages of a trace reused by the thread. A slow request
+ * claims a slot of the ring buffer with an atomic counter, so recording never locks and the oldest slow requests are
+ * overwritten when the buffer is full.
+ */
+@Component
+public class SlowRequestLog {
+
+    private final ThreadLocal<RequestTrace> traces = ThreadLocal.withInitial(RequestTrace::new);
+
+    private final AtomicLong recorded = new AtomicLong();
+
+    private final AtomicReferenceArray<SlowRequest> slowRequests;
+
+    private final long thresholdNanos;
+
+    /**
+     * SlowRequestLog object.
+     *
+     * @param threshold Requests that take longer are recorded.
+     * @param capacity Number of the latest slow requests that are kept.
+     */
+    public SlowRequestLog(@Value("${delivery.slow-requests.threshold:100ms}") Duration threshold,
+                          @Value("${delivery.slow-requests.capacity:128}") int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("delivery.slow-requests.capacity must be positive");
+        }
+        this.thresholdNanos = threshold.toNanos();
+        this.slowRequests = new AtomicReferenceArray<>(capacity);
+    }
+
+    /**
+     * Starting the trace of a request handled by the current thread.
+     *
+     * @param startNanos System.nanoTime() when the request started.
+     * @return The trace of the current thread.
+     */
+    public RequestTrace start(long startNanos) {
+        RequestTrace trace = traces.get();
+        trace.start(startNanos);
+        return trace;
+    }
+
+    /**
+     * Ending a stage of the request handled by the current thread.
+     *
+     * The time since the previous stage ended belongs to this stage. Nothing is timed if the current thread is not
+     * handling a traced request, e.g. a batch of deliveries.
+     *
+     * @param stage The stage that ended.
+     */
+    public void mark(RequestStage stage) {
+        traces.get().mark(stage);
+    }
+
+    /**
+     * Ending the trace of a request and recording it if it was slow.
+     *
+     * @param trace The trace of the request.
+     * @param station The station parameter of the request.
+     * @param vehicle The vehicle parameter of the request.
+     * @param date The date parameter of the request or null.
+     * @param status Status of the fee result.
+     */
+    public void finish(RequestTrace trace, String station, String vehicle, String date, FeeStatus status) {
+        long totalNanos = trace.finish();
+        if (totalNanos < thresholdNanos) {
+            return;
+        }
+        long sequence = recorded.getAndIncrement();
+        slowRequests.set((int) (sequence % slowRequests.length()), new SlowRequest(sequence, LocalDateTime.now(),
+                station, vehicle, date, status, totalNanos, trace.copyStageNanos()));
+    }
+
+    /**
+     * Getting the slow requests in the ring buffer.
+     *
+     * @return The latest slow requests, the newest first.
+     */
+    public List<SlowRequest> getSlowRequests() {
+        List<SlowRequest> requests = new ArrayList<>(slowRequests.length());
+        for (int i = 0; i < slowRequests.length(); i++) {
+            SlowRequest request = slowRequests.get(i);
+            if (request != null) {
+                requests.add(request);
+            }
+        }
+        requests.sort(Comparator.comparingLong(SlowRequest::getSequence).reversed());
+        return requests;
+    }
+
+    /**
+     * Getting the number of slow requests recorded since the application started.
+     *
+     * @return Number of slow requests, including the ones that were overwritten.
+     */
+    public long getRecorded() {
+        return recorded.get();
+    }
+
+    /**
+     * Getting the slow request threshold.
+     *
+     * @return Requests that take longer are recorded.
+     */
+    public Duration getThreshold() {
+        return Duration.ofNanos(thresholdNanos);
+    }
+}
@@ -0,0 +1,36 @@
+package delivery.backend.metrics;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * SlowRequestsEndpoint object.
+ *
+ * Admin endpoint /actuator/slowrequests with the latest delivery fee requests of the SlowRequestLog.
+ */
+@Component
+@Endpoint(id = "slowrequests")
+@RequiredArgsConstructor
+public class SlowRequestsEndpoint {
+
+    private final SlowRequestLog slowRequestLog;
+
+    /**
+     * Getting the slow requests.
+     *
+     * @return The threshold, the number of slow requests since the start and the latest slow requests.
+     */
+    @ReadOperation
+    public Map<String, Object> slowRequests() {
+        Map<String, Object> slowRequests = new LinkedHashMap<>();
+        slowRequests.put("thresholdMillis", slowRequestLog.getThreshold().toMillis());
+        slowRequests.put("recorded", slowRequestLog.getRecorded());
+        slowRequests.put("requests", slowRequestLog.getSlowRequests());
+        return slowRequests;
+    }
+}
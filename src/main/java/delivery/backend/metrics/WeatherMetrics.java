@@ -0,0 +1,149 @@
+package delivery.backend.metrics;
+
+import delivery.backend.cache.WeatherCache;
+import delivery.backend.entities.WeatherData;
+import delivery.backend.enums.ImportOutcome;
+import delivery.backend.repositories.WeatherRepository;
+import delivery.backend.stations.Station;
+import delivery.backend.stations.StationRegistry;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * WeatherMetrics object.
+ *
+ * Meters of the weather import and the weather data:
+ *      - weather.import             - Timer of import cycles by outcome: success, not_modified, failure or timeout
+ *      - weather.import.feed.size   - Size of the uncompressed imported feeds in bytes
+ *      - weather.import.rows        - Counter of saved rows by result: new or duplicate (skipped)
+ *      - weather.phenomenon.unknown - Counter of imported weather phenomena that were not recognized
+ *      - weather.table.rows         - Gauge of the number of rows in the weather data table
+ *      - weather.data.age           - Gauge of the age of the latest weather data by station in seconds
+ *
+ * Every meter is registered when the application starts. The rows of the weather data table are counted once at
+ * startup and then kept up to date by the saved and deleted rows, so a scrape does not query the database.
+ */
+@Component
+public class WeatherMetrics {
+
+    private final Timer[] importTimers = new Timer[ImportOutcome.values().length];
+
+    private final DistributionSummary feedSize;
+
+    private final Counter newRows;
+
+    private final Counter duplicateRows;
+
+    private final Counter unknownPhenomena;
+
+    private final AtomicLong tableRows;
+
+    /**
+     * WeatherMetrics object.
+     *
+     * @param meterRegistry Registry the meters are registered in.
+     * @param weatherRepository Repository the rows are counted in at startup.
+     * @param weatherCache Cache the latest weather data is taken from.
+     * @param stationRegistry Every station which weather data is imported.
+     */
+    public WeatherMetrics(MeterRegistry meterRegistry, WeatherRepository weatherRepository,
+                          WeatherCache weatherCache, StationRegistry stationRegistry) {
+        for (ImportOutcome outcome : ImportOutcome.values()) {
+            importTimers[outcome.ordinal()] = Timer.builder("weather.import")
+                    .description("Duration of weather import cycles")
+                    .tag("outcome", outcome.name().toLowerCase(Locale.ROOT))
+                    .register(meterRegistry);
+        }
+        feedSize = DistributionSummary.builder("weather.import.feed.size")
+                .description("Size of the imported weather feeds")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        newRows = Counter.builder("weather.import.rows")
+                .description("Weather data rows by import result")
+                .tag("result", "new")
+                .register(meterRegistry);
+        duplicateRows = Counter.builder("weather.import.rows")
+                .description("Weather data rows by import result")
+                .tag("result", "duplicate")
+                .register(meterRegistry);
+        unknownPhenomena = Counter.builder("weather.phenomenon.unknown")
+                .description("Imported weather phenomena that were not recognized")
+                .register(meterRegistry);
+
+        tableRows = new AtomicLong(weatherRepository.count());
+        Gauge.builder("weather.table.rows", tableRows, AtomicLong::get)
+                .description("Number of rows in the weather data table")
+                .register(meterRegistry);
+        for (Station station : stationRegistry.getStations()) {
+            Gauge.builder("weather.data.age", () -> getAgeSeconds(weatherCache.getSnapshot().get(station)))
+                    .description("Age of the latest weather data of the station")
+                    .baseUnit("seconds")
+                    .tag("station", station.getCity())
+                    .register(meterRegistry);
+        }
+    }
+
+    /**
+     * Recording an import cycle.
+     *
+     * @param outcome Outcome of the import cycle.
+     * @param durationNanos Duration of the import cycle in nanoseconds.
+     */
+    public void recordImport(ImportOutcome outcome, long durationNanos) {
+        importTimers[outcome.ordinal()].record(durationNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Recording the size of an imported feed.
+     *
+     * @param feedBytes Size of the uncompressed feed in bytes.
+     */
+    public void recordFeedSize(long feedBytes) {
+        feedSize.record(feedBytes);
+    }
+
+    /**
+     * Recording saved weather data rows.
+     *
+     * @param rows Number of rows that were given to save.
+     * @param savedRows Number of the rows that were new and saved, the others were already saved.
+     */
+    public void recordRows(long rows, long savedRows) {
+        newRows.increment(savedRows);
+        duplicateRows.increment(rows - savedRows);
+        tableRows.addAndGet(savedRows);
+    }
+
+    /**
+     * Recording an imported weather phenomenon that was not recognized.
+     */
+    public void recordUnknownPhenomenon() {
+        unknownPhenomena.increment();
+    }
+
+    /**
+     * Recording weather data rows deleted from the table.
+     *
+     * @param deletedRows Number of deleted rows.
+     */
+    public void recordDeletedRows(long deletedRows) {
+        tableRows.addAndGet(-deletedRows);
+    }
+
+    private static double getAgeSeconds(WeatherData weatherData) {
+        if (weatherData == null) {
+            return Double.NaN;
+        }
+        return Duration.between(weatherData.getTimestamp(), LocalDateTime.now()).getSeconds();
+    }
+}
@@ -2,12 +2,57 @@ package delivery.backend.repositories;
 
 import delivery.backend.entities.WeatherData;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface WeatherRepository extends JpaRepository<WeatherData, Long> {
 
     List<WeatherData> findAllByWmoCode(int wmoCode);
+
+    List<WeatherData> findAllByWmoCodeOrderByTimestampAsc(int wmoCode);
+
+    List<WeatherData> findAllByWmoCodeAndTimestampBeforeOrderByTimestampAsc(int wmoCode, LocalDateTime timestamp);
+
+    Optional<WeatherData> findFirstByWmoCodeAndTimestampLessThanEqualOrderByTimestampDesc(int wmoCode,
+                                                                                         LocalDateTime timestamp);
+
+    Optional<WeatherData> findFirstByWmoCodeAndTimestampGreaterThanEqualOrderByTimestampAsc(int wmoCode,
+                                                                                            LocalDateTime timestamp);
+
+    @Query("select distinct w.wmoCode from WeatherData w")
+    List<Integer> findAllWmoCodes();
+
+    List<ObservationKey> findByWmoCodeInAndTimestampBetween(Collection<Integer> wmoCodes,
+                                                            LocalDateTime from, LocalDateTime to);
+
+    ObservationTime findFirstByWmoCodeOrderByTimestampAsc(int wmoCode);
+
+    List<ObservationTime> findByWmoCodeAndTimestampGreaterThanEqualAndTimestampBeforeOrderByTimestampAsc(
+            int wmoCode, LocalDateTime from, LocalDateTime to);
+
+    /**
+     * Id and time of a saved observation, read without loading the whole WeatherData.
+     */
+    interface ObservationTime {
+
+        Long getId();
+
+        LocalDateTime getTimestamp();
+    }
+
+    /**
+     * Station and time of a saved observation, the unique key of WeatherData.
+     */
+    interface ObservationKey {
+
+        Integer getWmoCode();
+
+        LocalDateTime getTimestamp();
+    }
 }
@@ -0,0 +1,229 @@
+package delivery.backend.rules;
+
+import delivery.backend.enums.Phenomenon;
+import delivery.backend.enums.Vehicle;
+import delivery.backend.stations.Station;
+
+import java.util.Properties;
+
+/**
+ * FeeRules object.
+ *
+ * Delivery fee rules compiled from a rule table into arrays of fees in cents:
+ *      - air temperature and wind speed extra fees as threshold bands
+ *      - weather phenomenon extra fee by phenomenon class
+ *
+ * Forbidden conditions are stored as a big negative number, so a forbidden extra fee makes the whole fee negative.
+ * Vehicle types a rule does not apply to get 0 from that rule.
+ * The regional base fees are set per station in the StationRegistry.
+ */
+public final class FeeRules {
+
+    // Still negative when all four parts of the fee are forbidden
+    public static final int FORBIDDEN = Integer.MIN_VALUE / 4;
+
+    private static final int PHENOMENA = Phenomenon.values().length;
+
+    private final Bands airTemperatureFees;
+
+    private final Bands windSpeedFees;
+
+    private final int[] phenomenonFees;
+
+    private FeeRules(Bands airTemperatureFees, Bands windSpeedFees, int[] phenomenonFees) {
+        this.airTemperatureFees = airTemperatureFees;
+        this.windSpeedFees = windSpeedFees;
+        this.phenomenonFees = phenomenonFees;
+    }
+
+    /**
+     * Compiling the rule table into fee rules.
+     *
+     * @param properties The rule table.
+     * @return The compiled fee rules.
+     * @throws IllegalArgumentException when a rule is missing or can not be read.
+     */
+    public static FeeRules compile(Properties properties) throws IllegalArgumentException {
+
+        int[] phenomenonFees = new int[Phenomenon.values().length];
+        for (Phenomenon phenomenon : Phenomenon.values()) {
+            phenomenonFees[phenomenon.ordinal()] = parseFee(getRule(properties, "phenomenon.fee." + phenomenon.name()));
+        }
+
+        return new FeeRules(Bands.compile(properties, "airtemperature"),
+                Bands.compile(properties, "windspeed"),
+                withVehicles(properties, "phenomenon", phenomenonFees));
+    }
+
+    /**
+     * Calculating the delivery fee.
+     *
+     * @param station The station near the chosen city.
+     * @param vehicle Type of the vehicle for the deliverer.
+     * @param airTemp Air temperature recorded at the weather station.
+     * @param windSpeed Wind speed recorded at the weather station.
+     * @param phenomenon Weather phenomenon class recorded at the weather station.
+     * @return The delivery fee in cents or a negative number if usage of the vehicle type is forbidden.
+     */
+    public int calculateFee(Station station, Vehicle vehicle, double airTemp, double windSpeed,
+                            Phenomenon phenomenon) {
+        return station.getBaseFee(vehicle)
+                + getAirTemperatureFee(vehicle, airTemp)
+                + getWindSpeedFee(vehicle, windSpeed)
+                + getPhenomenonFee(vehicle, phenomenon);
+    }
+
+    /**
+     * Checking if a fee or a part of a fee means that usage of the vehicle type is forbidden.
+     *
+     * @param fee The fee in cents.
+     * @return True if usage of the vehicle type is forbidden.
+     */
+    public static boolean isForbidden(int fee) {
+        return fee < 0;
+    }
+
+    /**
+     * Getting the air temperature extra fee.
+     *
+     * @param vehicle Type of the vehicle for the deliverer.
+     * @param airTemp Air temperature recorded at the weather station.
+     * @return The extra fee in cents.
+     */
+    public int getAirTemperatureFee(Vehicle vehicle, double airTemp) {
+        return airTemperatureFees.fee(vehicle.ordinal(), airTemp);
+    }
+
+    /**
+     * Getting the wind speed extra fee.
+     *
+     * @param vehicle Type of the vehicle for the deliverer.
+     * @param windSpeed Wind speed recorded at the weather station.
+     * @return The extra fee in cents.
+     */
+    public int getWindSpeedFee(Vehicle vehicle, double windSpeed) {
+        return windSpeedFees.fee(vehicle.ordinal(), windSpeed);
+    }
+
+    /**
+     * Getting the weather phenomenon extra fee.
+     *
+     * @param vehicle Type of the vehicle for the deliverer.
+     * @param phenomenon Weather phenomenon class recorded at the weather station.
+     * @return The extra fee in cents.
+     */
+    public int getPhenomenonFee(Vehicle vehicle, Phenomenon phenomenon) {
+        return phenomenonFees[vehicle.ordinal() * PHENOMENA + phenomenon.ordinal()];
+    }
+
+    private static String getRule(Properties properties, String key) {
+        String rule = properties.getProperty(key);
+        if (rule == null || rule.isBlank()) {
+            throw new IllegalArgumentException("Fee rule " + key + " is missing");
+        }
+        return rule.trim();
+    }
+
+    /**
+     * Reading a fee in euros.
+     *
+     * @param fee The fee in euros or FORBIDDEN.
+     * @return The fee in cents or FORBIDDEN.
+     * @throws IllegalArgumentException when the fee is not a number or FORBIDDEN.
+     */
+    public static int parseFee(String fee) throws IllegalArgumentException {
+        if (fee.equalsIgnoreCase("FORBIDDEN")) {
+            return FORBIDDEN;
+        }
+        try {
+            long cents = Math.round(Double.parseDouble(fee) * 100);
+            if (cents < 0 || cents > Integer.MAX_VALUE / 4) {
+                throw new IllegalArgumentException("Fee " + fee + " must be between 0 and "
+                        + Integer.MAX_VALUE / 400);
+            }
+            return (int) cents;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Fee " + fee + " is not a number or FORBIDDEN");
+        }
+    }
+
+    // Fees for every vehicle type, vehicle types the rule does not apply to get 0
+    private static int[] withVehicles(Properties properties, String rule, int[] fees) {
+        int[] vehicleFees = new int[Vehicle.values().length * fees.length];
+
+        for (String vehicle : getRule(properties, rule + ".vehicles").split(",")) {
+            int v = Vehicle.valueOf(vehicle.trim().toUpperCase()).ordinal();
+            System.arraycopy(fees, 0, vehicleFees, v * fees.length, fees.length);
+        }
+        return vehicleFees;
+    }
+
+    /**
+     * Threshold bands of one measurement.
+     *
+     * The value is compared with the limits in order and the first band the value fits in gives the fee.
+     */
+    private static final class Bands {
+
+        private final double[] limits;
+
+        private final boolean[] inclusive;
+
+        // Fees of every vehicle type, the last fee of a vehicle type is for values above all limits
+        private final int[] fees;
+
+        private final int width;
+
+        private Bands(double[] limits, boolean[] inclusive, int[] fees) {
+            this.limits = limits;
+            this.inclusive = inclusive;
+            this.fees = fees;
+            this.width = limits.length + 1;
+        }
+
+        private static Bands compile(Properties properties, String rule) {
+            String[] bands = getRule(properties, rule + ".bands").split(",");
+
+            double[] limits = new double[bands.length - 1];
+            boolean[] inclusive = new boolean[bands.length - 1];
+            int[] fees = new int[bands.length];
+
+            for (int i = 0; i < bands.length; i++) {
+                String band = bands[i].trim();
+                int separator = band.lastIndexOf(':');
+                if (separator < 0) {
+                    throw new IllegalArgumentException("Band " + band + " of " + rule + " has no fee");
+                }
+
+                String limit = band.substring(0, separator).trim();
+                fees[i] = parseFee(band.substring(separator + 1).trim());
+
+                if (i == bands.length - 1) {
+                    if (!limit.equals("*")) {
+                        throw new IllegalArgumentException("Last band of " + rule + " must be *");
+                    }
+                } else if (limit.startsWith("<=")) {
+                    inclusive[i] = true;
+                    limits[i] = Double.parseDouble(limit.substring(2).trim());
+                } else if (limit.startsWith("<")) {
+                    limits[i] = Double.parseDouble(limit.substring(1).trim());
+                } else {
+                    throw new IllegalArgumentException("Band " + band + " of " + rule + " must start with < or <=");
+                }
+            }
+            return new Bands(limits, inclusive, withVehicles(properties, rule, fees));
+        }
+
+        private int fee(int vehicle, double value) {
+            // Missing measurements do not add an extra fee
+            if (Double.isNaN(value)) {
+                return 0;
+            }
+            int band = 0;
+            while (band < limits.length && !(value < limits[band] || (inclusive[band] && value == limits[band]))) {
+                band++;
+            }
+            return fees[vehicle * width + band];
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package delivery.backend.rules;
+
+/**
+ * Event that is published when the fee rules have been reloaded from the rule table.
+ */
+public class FeeRulesChangedEvent {
+
+    private final FeeRules feeRules;
+
+    /**
+     * FeeRulesChangedEvent object.
+     *
+     * @param feeRules The new fee rules.
+     */
+    public FeeRulesChangedEvent(FeeRules feeRules) {
+        this.feeRules = feeRules;
+    }
+
+    /**
+     * Getting the new fee rules.
+     *
+     * @return The new fee rules.
+     */
+    public FeeRules getFeeRules() {
+        return feeRules;
+    }
+}
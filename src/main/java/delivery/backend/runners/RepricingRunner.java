@@ -0,0 +1,68 @@
+package delivery.backend.runners;
+
+import delivery.backend.dto.RepricingResult;
+import delivery.backend.services.RepricingService;
+import delivery.backend.services.WeatherService;
+import delivery.backend.stations.StationRegistry;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+@Component
+@RequiredArgsConstructor
+public class RepricingRunner implements ApplicationRunner {
+
+    public static final String INPUTOPTION = "reprice.input";
+
+    private final RepricingService repricingService;
+
+    private final WeatherService weatherService;
+
+    private final StationRegistry stationRegistry;
+
+
+    /**
+     * Repricing an order file when the application is started with "--reprice.input=orders.ndjson".
+     *
+     * Priced orders are written to "--reprice.output" or next to the input file with ".priced" added to the name,
+     * the last line is the summary of the run. The application exits when all the orders are priced.
+     *
+     * The default database is in memory and empty when the application starts, so the orders are priced with the
+     * weather history of the WeatherArchive ("--weather.archive.directory") or of a datasource that already has
+     * the weather data. Without any weather history every order would be priced "not found", so the run fails
+     * instead.
+     *
+     * @param args Arguments the application was started with.
+     * @throws IOException when reading the orders or writing the results fails.
+     * @throws IllegalStateException when there is no weather history to price the orders with.
+     */
+    @Override
+    public void run(ApplicationArguments args) throws IOException {
+        if (!args.containsOption(INPUTOPTION)) {
+            return;
+        }
+        if (stationRegistry.getStations().stream().noneMatch(weatherService::hasWeatherData)) {
+            throw new IllegalStateException("There is no weather history to reprice the orders with. Start with"
+                    + " --weather.archive.directory set to the weather archive or a datasource with weather data");
+        }
+
+        Path input = Path.of(args.getOptionValues(INPUTOPTION).get(0));
+        Path output = args.containsOption("reprice.output")
+                ? Path.of(args.getOptionValues("reprice.output").get(0))
+                : Path.of(input + ".priced");
+
+        try (Reader orders = Files.newBufferedReader(input, StandardCharsets.UTF_8);
+             Writer results = Files.newBufferedWriter(output, StandardCharsets.UTF_8)) {
+            RepricingResult result = repricingService.reprice(orders, results);
+            repricingService.writeSummary(result, results);
+        }
+    }
+}
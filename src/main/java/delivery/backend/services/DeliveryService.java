@@ -1,15 +1,29 @@
 package delivery.backend.services;
 
-import delivery.backend.constants.Constants;
+import delivery.backend.cache.WeatherCache;
+import delivery.backend.cache.WeatherHistory;
+import delivery.backend.dto.FeeQuoteRequest;
+import delivery.backend.dto.FeeQuoteResponse;
+import delivery.backend.dto.FeeResult;
 import delivery.backend.entities.Delivery;
 import delivery.backend.entities.WeatherData;
-import delivery.backend.enums.Station;
-import delivery.backend.exceptions.ForbiddenUsageOfVehicleException;
-import delivery.backend.exceptions.WrongDateException;
+import delivery.backend.enums.FeeStatus;
+import delivery.backend.enums.RequestStage;
+import delivery.backend.enums.Vehicle;
+import delivery.backend.exceptions.StationNotFoundException;
+import delivery.backend.metrics.SlowRequestLog;
+import delivery.backend.stations.Station;
+import delivery.backend.stations.StationRegistry;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 
-import java.util.Optional;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 
 @Service
 @RequiredArgsConstructor
@@ -17,106 +31,175 @@ public class DeliveryService {
 
     private final WeatherService weatherService;
 
+    private final WeatherCache weatherCache;
+
+    private final FeeCalculator feeCalculator;
+
+    private final StationRegistry stationRegistry;
+
+    private final SlowRequestLog slowRequestLog;
+
+    // Dates remembered per station in one batch of fee quotes
+    private static final int WEATHERLOOKUPCAPACITY = 256;
+
     /**
      * Method for calculating delivery fee based on city (station wmo code), vehicle type and weather conditions.
      *
-     * First we get the latest weather data from the station closest to the chosen city.
+     * If a date is not chosen the fee is read from the fee matrix, which is calculated with the latest weather
+     * data every time new weather data is imported. The matrix does not have the parts of the fee, so when they
+     * are asked for the fee is calculated with the latest weather data.
      *
-     * We need to calculate: (Extra fees apply to certain vehicle types)
-     *      - rbf (regional base fee)             - base fee for certain vehicle types in certain cities.
-     *      - atef (air temperature extra fee)    - (Bike and Scooter) based on how cold it is, extra fee is added.
-     *      - wsef (wind speed extra fee)         - (Bike) if it is windy then an extra fee is added. If it is too windy
-     *                                              then it is too dangerous to deliver using the chosen vehicle type.
-     *      - wpef (weather phenomenon extra fee) - (Bike and Scooter) Snow, sleet and rain give extra fees.
-     *                                              Glaze, hail and thunder are too dangerous to make deliveries
-     *                                              in using these certain vehicle types.
+     * If a date is chosen we find the observation closest to the chosen date in the weather history of the station
+     * closest to the chosen city and the fee is calculated with the FeeCalculator directly from the history.
      *
      * @param delivery Object with the chosen station (city) and vehicle type for this delivery.
-     * @param date Optional parameter. If a date is chosen then the fee will be calculated based on the chosen date.
-     * @return Error message or the calculated delivery fee.
-     * @throws ForbiddenUsageOfVehicleException Thrown when weather conditions are too dangerous for vehicle type.
-     * @throws WrongDateException Thrown when the chosen date is too far apart with the closest weather data.
+     * @param date Chosen date or null. If a date is chosen then the fee will be calculated based on the chosen date.
+     * @param breakdown If the parts of the fee should be in the result.
+     * @return The calculated delivery fee or the reason why there is no fee.
      */
-    public String calculateDeliveryFee(Delivery delivery, Optional<String> date)
-            throws ForbiddenUsageOfVehicleException, WrongDateException {
+    public FeeResult calculateDeliveryFee(Delivery delivery, LocalDateTime date, boolean breakdown) {
+        Station station = delivery.getStation();
+        FeeResult result;
+
+        if (date != null) {
+            WeatherHistory history = weatherService.getWeatherHistory(station);
+            int index = weatherService.findClosestObservation(history, date);
+            slowRequestLog.mark(RequestStage.WEATHER_LOOKUP);
+            result = index == WeatherHistory.NOTFOUND
+                    ? getNotFoundResult(delivery)
+                    : feeCalculator.calculateFee(station, delivery.getVehicle(), history, index, breakdown);
+        } else if (breakdown) {
+            WeatherData weatherData = weatherService.getLatestWeatherData(station);
+            slowRequestLog.mark(RequestStage.WEATHER_LOOKUP);
+            result = weatherData == null
+                    ? FeeResult.WEATHER_DATA_NOT_FOUND
+                    : feeCalculator.calculateFee(station, delivery.getVehicle(), weatherData, true);
+        } else {
+            result = weatherCache.getSnapshot().getFeeMatrix().getResult(station, delivery.getVehicle());
+        }
+        slowRequestLog.mark(RequestStage.FEE_CALCULATION);
+        return result;
+    }
 
-        WeatherData weatherData = weatherService.getWeatherData(delivery.getStation().getWmoCode(), date);
+    /**
+     * Method for calculating delivery fees of many deliveries at once.
+     *
+     * The deliveries are grouped by station and the weather data of every different station and date is looked up
+     * only once. Every delivery gets its own result, so an error in one delivery does not fail the others.
+     *
+     * @param requests Deliveries with station wmo code, vehicle type and (Optional) date.
+     * @return Calculated delivery fee or error message of every delivery in the same order as the requests.
+     */
+    public List<FeeQuoteResponse> calculateDeliveryFees(List<FeeQuoteRequest> requests) {
 
-        double fee = getRegionalBaseFee(delivery);
-        double atef = 0;
-        double wpef = 0;
-        double wsef = 0;
+        List<FeeQuoteResponse> responses = new ArrayList<>(requests.size());
+        List<Delivery> deliveries = new ArrayList<>(requests.size());
+        Map<Station, List<Integer>> requestsByStation = new LinkedHashMap<>();
 
-        switch (delivery.getVehicle()) {
-            case SCOOTER -> {
-                atef = calculateAirTemperatureFee(weatherData.getAirTemp());
-                wpef = calculateWeatherPhenomenon(weatherData.getPhenomenon().toLowerCase());
-            }
-            case BIKE -> {
-                atef = calculateAirTemperatureFee(weatherData.getAirTemp());
-                wpef = calculateWeatherPhenomenon(weatherData.getPhenomenon().toLowerCase());
-                wsef = calculateWindSpeedFee(weatherData.getWindSpeed());
+        for (int i = 0; i < requests.size(); i++) {
+            FeeQuoteResponse response = new FeeQuoteResponse(requests.get(i));
+            Delivery delivery = createDelivery(requests.get(i), response);
+
+            responses.add(response);
+            deliveries.add(delivery);
+            if (delivery != null) {
+                requestsByStation.computeIfAbsent(delivery.getStation(), station -> new ArrayList<>()).add(i);
             }
         }
 
-        return fee + atef + wpef + wsef + " €";
-    }
+        WeatherLookup weatherLookup = new WeatherLookup(weatherService, stationRegistry.size(),
+                WEATHERLOOKUPCAPACITY);
 
-    private double getRegionalBaseFee(Delivery delivery) {
-
-        if (delivery.getStation() == Station.TALLINN) {
-            return switch (delivery.getVehicle()) {
-                case CAR -> Constants.BASEFEE4;
-                case SCOOTER -> Constants.BASEFEE35;
-                case BIKE -> Constants.BASEFEE3;
-            };
-        } else if (delivery.getStation() == Station.TARTU) {
-            return switch (delivery.getVehicle()) {
-                case CAR -> Constants.BASEFEE35;
-                case SCOOTER -> Constants.BASEFEE3;
-                case BIKE -> Constants.BASEFEE25;
-            };
-        } else {
-            return switch (delivery.getVehicle()) {
-                case CAR -> Constants.BASEFEE3;
-                case SCOOTER -> Constants.BASEFEE25;
-                case BIKE -> Constants.BASEFEE2;
-            };
+        for (List<Integer> stationRequests : requestsByStation.values()) {
+            for (int i : stationRequests) {
+                quoteDeliveryFee(deliveries.get(i), requests.get(i).getDate(), responses.get(i), weatherLookup);
+            }
         }
+        return responses;
     }
 
-    private double calculateAirTemperatureFee(double airTemp) {
+    /**
+     * Method for calculating the delivery fee of one delivery without throwing an exception.
+     *
+     * @param request Delivery with station wmo code, vehicle type and (Optional) date.
+     * @param weatherLookup Remembers weather data that was already found for other deliveries.
+     * @return Calculated delivery fee or error message of the delivery.
+     */
+    public FeeQuoteResponse calculateDeliveryFee(FeeQuoteRequest request, WeatherLookup weatherLookup) {
 
-        if (airTemp < Constants.MINAIRTEMP) {
-            return Constants.EXTRAFEE1;
-        } else if (Constants.MINAIRTEMP <= airTemp && airTemp <= 0) {
-            return Constants.EXTRAFEE05;
-        } else {
-            return 0;
+        FeeQuoteResponse response = new FeeQuoteResponse(request);
+        Delivery delivery = createDelivery(request, response);
+
+        if (delivery != null) {
+            quoteDeliveryFee(delivery, request.getDate(), response, weatherLookup);
         }
+        return response;
     }
 
-    private double calculateWindSpeedFee(double windSpeed) throws ForbiddenUsageOfVehicleException {
+    /**
+     * Getting the delivery fees of every station and vehicle type calculated with the latest weather data.
+     *
+     * @return Delivery fee result of every station and vehicle type.
+     */
+    public Map<String, Map<Vehicle, FeeResult>> getFeeMatrix() {
+        return weatherCache.getSnapshot().getFeeMatrix().toMap();
+    }
 
-        if (Constants.MINWINDSPEED <= windSpeed && windSpeed <= Constants.MAXWINDSPEED) {
-            return Constants.EXTRAFEE05;
-        } else if (windSpeed > Constants.MAXWINDSPEED) {
-            throw new ForbiddenUsageOfVehicleException("Usage of selected vehicle type is forbidden");
+    private boolean isDateChosen(String date) {
+        return date != null && !date.isEmpty();
+    }
+
+    private Delivery createDelivery(FeeQuoteRequest request, FeeQuoteResponse response) {
+        try {
+            Delivery delivery = new Delivery(stationRegistry, request.getStation(),
+                    Objects.requireNonNullElse(request.getVehicle(), ""));
+
+            if (isDateChosen(request.getDate())
+                    && LocalDateTime.now().isBefore(LocalDateTime.parse(request.getDate()))) {
+                setResult(response, FeeResult.FUTURE_DATE);
+                return null;
+            }
+            return delivery;
+
+        } catch (NumberFormatException | StationNotFoundException e) {
+            setResult(response, FeeResult.STATION_NOT_FOUND);
+        } catch (DateTimeParseException e) {
+            response.setError("Please select a date in the format yyyy-MM-ddTHH:mm");
+        } catch (IllegalArgumentException e) {
+            response.setError("Vehicle type was not found");
+        }
+        return null;
+    }
+
+    private void quoteDeliveryFee(Delivery delivery, String date, FeeQuoteResponse response,
+                                  WeatherLookup weatherLookup) {
+        FeeResult result;
+        if (isDateChosen(date)) {
+            Station station = delivery.getStation();
+            int index = weatherLookup.findClosestObservation(station, LocalDateTime.parse(date));
+            result = index == WeatherHistory.NOTFOUND
+                    ? getNotFoundResult(delivery)
+                    : feeCalculator.calculateFee(station, delivery.getVehicle(),
+                            weatherLookup.getWeatherHistory(station), index, false);
         } else {
-            return 0;
+            result = weatherCache.getSnapshot().getFeeMatrix().getResult(delivery.getStation(), delivery.getVehicle());
         }
+        setResult(response, result);
     }
 
-    private double calculateWeatherPhenomenon(String phenomenon) throws ForbiddenUsageOfVehicleException {
+    private FeeResult getNotFoundResult(Delivery delivery) {
+        return weatherService.hasWeatherData(delivery.getStation())
+                ? FeeResult.WRONG_DATE
+                : FeeResult.WEATHER_DATA_NOT_FOUND;
+    }
 
-        if (phenomenon.contains("rain")) {
-            return Constants.EXTRAFEE05;
-        } else if (phenomenon.contains("snow") || phenomenon.contains("sleet")) {
-            return Constants.EXTRAFEE1;
-        } else if (phenomenon.contains("glaze") || phenomenon.contains("hail") || phenomenon.contains("thunder")) {
-            throw new ForbiddenUsageOfVehicleException("Usage of selected vehicle type is forbidden");
+    private void setResult(FeeQuoteResponse response, FeeResult result) {
+        if (result.getStatus() == FeeStatus.OK) {
+            response.setFee(result.getMessage());
+            response.setFeeCents(result.getFeeCents());
         } else {
-            return 0;
+            response.setError(result.getMessage());
         }
+        response.setStatus(result.getStatus());
     }
 }
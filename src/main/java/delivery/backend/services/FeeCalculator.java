@@ -0,0 +1,164 @@
+package delivery.backend.services;
+
+import delivery.backend.cache.WeatherHistory;
+import delivery.backend.dto.FeeBreakdown;
+import delivery.backend.dto.FeeResult;
+import delivery.backend.entities.WeatherData;
+import delivery.backend.enums.Phenomenon;
+import delivery.backend.enums.Vehicle;
+import delivery.backend.rules.FeeRules;
+import delivery.backend.rules.FeeRulesChangedEvent;
+import delivery.backend.stations.Station;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.Properties;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+@Component
+@RequiredArgsConstructor
+public class FeeCalculator {
+
+    private final ResourceLoader resourceLoader;
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    private final Logger logger = Logger.getLogger(FeeCalculator.class.getName());
+
+    @Value("${fee.rules.location:classpath:fee-rules.properties}")
+    private String rulesLocation;
+
+    private volatile FeeRules feeRules;
+
+    private long rulesLastModified;
+
+
+    /**
+     * Loading the fee rules from the rule table when the application starts.
+     *
+     * @throws IOException when the rule table can not be read.
+     */
+    @PostConstruct
+    public void loadFeeRules() throws IOException {
+        Resource rules = resourceLoader.getResource(rulesLocation);
+        rulesLastModified = getLastModified(rules);
+        feeRules = readFeeRules(rules);
+    }
+
+    /**
+     * Reloading the fee rules when the rule table has changed.
+     *
+     * The new rules are swapped in without a restart and a FeeRulesChangedEvent is published, so fees calculated
+     * in advance can be calculated again. If the new rule table can not be read the old rules are kept.
+     */
+    @Scheduled(fixedDelayString = "${fee.rules.reload-interval:10000}")
+    public void reloadFeeRulesIfChanged() {
+        Resource rules = resourceLoader.getResource(rulesLocation);
+        long lastModified = getLastModified(rules);
+
+        if (lastModified == rulesLastModified) {
+            return;
+        }
+        rulesLastModified = lastModified;
+
+        try {
+            feeRules = readFeeRules(rules);
+            eventPublisher.publishEvent(new FeeRulesChangedEvent(feeRules));
+            logger.log(Level.INFO, "FEE RULES: Reloaded fee rules from " + rulesLocation);
+        } catch (IOException | IllegalArgumentException e) {
+            logger.log(Level.WARNING, "Fee rules were not reloaded. Encountered an error: ", e);
+        }
+    }
+
+    /**
+     * Calculating the delivery fee for the station and vehicle type in the given weather conditions.
+     *
+     * We need to calculate: (The vehicle types each extra fee applies to are set in the rule table)
+     *      - rbf (regional base fee)             - base fee of the vehicle type in the city (StationRegistry).
+     *      - atef (air temperature extra fee)    - based on how cold it is, extra fee is added.
+     *      - wsef (wind speed extra fee)         - if it is windy then an extra fee is added. If it is too windy
+     *                                              then it is too dangerous to deliver using the chosen vehicle type.
+     *      - wpef (weather phenomenon extra fee) - Snow, sleet and rain give extra fees.
+     *                                              Glaze, hail and thunder are too dangerous to make deliveries
+     *                                              in using certain vehicle types.
+     *
+     * Forbidden weather conditions are returned as a result, not thrown as an exception.
+     *
+     * @param station The station near the chosen city.
+     * @param vehicle Type of the vehicle for the deliverer.
+     * @param weatherData Weather data the fee is calculated with.
+     * @param breakdown If true then the parts of the fee are added to the result.
+     * @return The calculated delivery fee in cents or the forbidden result.
+     */
+    public FeeResult calculateFee(Station station, Vehicle vehicle, WeatherData weatherData, boolean breakdown) {
+        return calculateFee(station, vehicle, weatherData.getAirTemp(), weatherData.getWindSpeed(),
+                weatherData.getPhenomenonClass(), breakdown);
+    }
+
+    /**
+     * Calculating the delivery fee for the station and vehicle type with an observation of the weather history.
+     *
+     * Works like calculateFee with weather data, but reads the weather conditions directly from the history,
+     * so no weather data object is created.
+     *
+     * @param station The station near the chosen city.
+     * @param vehicle Type of the vehicle for the deliverer.
+     * @param history Weather history of the station.
+     * @param index Index of the observation in the history.
+     * @param breakdown If true then the parts of the fee are added to the result.
+     * @return The calculated delivery fee in cents or the forbidden result.
+     */
+    public FeeResult calculateFee(Station station, Vehicle vehicle, WeatherHistory history, int index,
+                                  boolean breakdown) {
+        return calculateFee(station, vehicle, history.getAirTemp(index), history.getWindSpeed(index),
+                history.getPhenomenonClass(index), breakdown);
+    }
+
+    private FeeResult calculateFee(Station station, Vehicle vehicle, double airTemp, double windSpeed,
+                                   Phenomenon phenomenon, boolean breakdown) {
+
+        FeeRules rules = feeRules;
+        int fee = rules.calculateFee(station, vehicle, airTemp, windSpeed, phenomenon);
+
+        if (FeeRules.isForbidden(fee)) {
+            return FeeResult.FORBIDDEN;
+        } else if (!breakdown) {
+            return FeeResult.of(fee, null);
+        }
+
+        return FeeResult.of(fee, new FeeBreakdown(
+                station.getBaseFee(vehicle),
+                rules.getAirTemperatureFee(vehicle, airTemp),
+                rules.getWindSpeedFee(vehicle, windSpeed),
+                rules.getPhenomenonFee(vehicle, phenomenon)));
+    }
+
+    private FeeRules readFeeRules(Resource rules) throws IOException {
+        Properties properties = new Properties();
+
+        try (Reader reader = new InputStreamReader(rules.getInputStream(), StandardCharsets.UTF_8)) {
+            properties.load(reader);
+        }
+        return FeeRules.compile(properties);
+    }
+
+    private long getLastModified(Resource rules) {
+        try {
+            return rules.lastModified();
+        } catch (IOException e) {
+            // Rules inside the application jar do not change
+            return 0;
+        }
+    }
+}
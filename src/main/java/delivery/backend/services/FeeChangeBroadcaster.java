@@ -0,0 +1,346 @@
+package delivery.backend.services;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import delivery.backend.cache.FeeMatrix;
+import delivery.backend.cache.WeatherCache;
+import delivery.backend.cache.WeatherSnapshot;
+import delivery.backend.cache.WeatherSnapshotChangedEvent;
+import delivery.backend.dto.FeeChange;
+import delivery.backend.enums.Vehicle;
+import delivery.backend.stations.Station;
+import delivery.backend.stations.StationRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * FeeChangeBroadcaster object.
+ *
+ * Sends the delivery fees of every station and vehicle type to the subscribers of "/fees/stream" as server-sent
+ * events after every new WeatherSnapshot (an import, a reload or new fee rules).
+ *
+ * The fees of a snapshot are compared with the previously sent fees and serialized once by one broadcast thread,
+ * then the same event is handed to every subscriber. The events are sent by a fixed pool of fees.stream.send-threads
+ * threads, every subscriber one at a time and in order, so the number of threads does not depend on the number of
+ * subscribers. A subscriber that has not taken an event within fees.stream.send-timeout is disconnected, so a slow
+ * subscriber holds a send thread only until then, and a subscriber that is still sending when a newer event is ready
+ * gets only the newest one. A subscriber waits for a send thread in a queue of fees.stream.send-queue subscribers,
+ * a subscriber that does not fit in the queue is disconnected and connects again. A subscriber is an asynchronous
+ * response held by the servlet container, so an idle subscriber does not hold a thread.
+ */
+@Component
+public class FeeChangeBroadcaster {
+
+    private static final String EVENTNAME = "fees";
+
+    private final WeatherCache weatherCache;
+
+    private final StationRegistry stationRegistry;
+
+    private final ObjectMapper objectMapper;
+
+    private final Logger logger = Logger.getLogger(FeeChangeBroadcaster.class.getName());
+
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+
+    // Compares and serializes the fees and ends stalled subscriptions
+    private final ScheduledExecutorService broadcastExecutor = Executors.newSingleThreadScheduledExecutor(
+            runnable -> {
+                Thread thread = new Thread(runnable, "fee-broadcast");
+                thread.setDaemon(true);
+                return thread;
+            });
+
+    // A subscriber has at most one send task in the queue or running
+    private final ExecutorService sendExecutor;
+
+    private final long timeoutMillis;
+
+    private final long sendTimeoutNanos;
+
+    // Written only by the broadcast thread
+    private FeeMatrix sentFeeMatrix;
+
+    private volatile Event latestEvent;
+
+    /**
+     * FeeChangeBroadcaster object.
+     *
+     * @param weatherCache Cache with the fee matrix of the latest snapshot.
+     * @param stationRegistry Every station which fees are sent.
+     * @param objectMapper Mapper the fees are serialized with.
+     * @param timeout Time after which a subscription ends and the subscriber connects again.
+     * @param sendTimeout Time after which a subscriber that has not taken an event is disconnected.
+     * @param sendThreads Number of threads the events are sent by.
+     * @param sendQueue Number of subscribers that can wait for a send thread.
+     */
+    public FeeChangeBroadcaster(WeatherCache weatherCache, StationRegistry stationRegistry, ObjectMapper objectMapper,
+                                @Value("${fees.stream.timeout:30m}") Duration timeout,
+                                @Value("${fees.stream.send-timeout:10s}") Duration sendTimeout,
+                                @Value("${fees.stream.send-threads:#{T(java.lang.Runtime).getRuntime()"
+                                        + ".availableProcessors()}}") int sendThreads,
+                                @Value("${fees.stream.send-queue:10000}") int sendQueue) {
+        this.weatherCache = weatherCache;
+        this.stationRegistry = stationRegistry;
+        this.objectMapper = objectMapper;
+        this.timeoutMillis = timeout.toMillis();
+        this.sendTimeoutNanos = sendTimeout.toNanos();
+        this.sendExecutor = new ThreadPoolExecutor(sendThreads, sendThreads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(sendQueue), runnable -> {
+                    Thread thread = new Thread(runnable, "fee-stream-send");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    /**
+     * Preparing the event with the fees of the snapshot the application started with.
+     *
+     * Stalled subscriptions are checked for every half of the send timeout.
+     *
+     * @throws JsonProcessingException when the fees can not be serialized.
+     */
+    @PostConstruct
+    public void prepareLatestEvent() throws JsonProcessingException {
+        WeatherSnapshot snapshot = weatherCache.getSnapshot();
+        latestEvent = createEvent(snapshot.getVersion(), snapshot.getFeeMatrix(), snapshot.getFeeMatrix());
+        sentFeeMatrix = snapshot.getFeeMatrix();
+
+        long checkInterval = Math.max(1, sendTimeoutNanos / 2);
+        broadcastExecutor.scheduleWithFixedDelay(this::endStalledSubscriptions, checkInterval, checkInterval,
+                TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Stopping the broadcast and send threads and ending the subscriptions when the application stops.
+     */
+    @PreDestroy
+    public void close() {
+        broadcastExecutor.shutdownNow();
+        sendExecutor.shutdownNow();
+        for (Subscriber subscriber : subscribers) {
+            subscriber.emitter.complete();
+        }
+        subscribers.clear();
+    }
+
+    /**
+     * Subscribing to the fee changes.
+     *
+     * The subscriber gets the latest fees at once and the new fees after every new snapshot, in order.
+     *
+     * @return The emitter the events are sent with.
+     */
+    public SseEmitter subscribe() {
+        return subscribe(new SseEmitter(timeoutMillis));
+    }
+
+    SseEmitter subscribe(SseEmitter emitter) {
+        Subscriber subscriber = new Subscriber(emitter);
+        emitter.onCompletion(() -> subscribers.remove(subscriber));
+        emitter.onTimeout(emitter::complete);
+        emitter.onError(e -> subscribers.remove(subscriber));
+
+        broadcastExecutor.execute(() -> {
+            // A snapshot published before the application was ready has no event yet
+            broadcast(weatherCache.getSnapshot());
+            subscribers.add(subscriber);
+            subscriber.offer(latestEvent);
+        });
+        return emitter;
+    }
+
+    /**
+     * Getting the number of subscribers.
+     *
+     * @return Number of open subscriptions.
+     */
+    public int getSubscribers() {
+        return subscribers.size();
+    }
+
+    /**
+     * Sending the new fees to the subscribers after the WeatherCache has a new snapshot.
+     *
+     * The event is created by the broadcast thread, so the import, reload or fee rule change does not wait for
+     * the subscribers.
+     *
+     * @param event Event with the new snapshot.
+     */
+    @EventListener
+    public void onSnapshotChanged(WeatherSnapshotChangedEvent event) {
+        broadcastExecutor.execute(() -> broadcast(event.getSnapshot()));
+    }
+
+    private void broadcast(WeatherSnapshot snapshot) {
+        // Snapshots that are announced out of order must not send older fees after newer ones
+        if (snapshot.getVersion() <= latestEvent.version) {
+            return;
+        }
+
+        Event event;
+        try {
+            event = createEvent(snapshot.getVersion(), snapshot.getFeeMatrix(), sentFeeMatrix);
+        } catch (JsonProcessingException e) {
+            logger.log(Level.WARNING, "FEE STREAM: Could not serialize the fees: " + e.getMessage());
+            return;
+        }
+        sentFeeMatrix = snapshot.getFeeMatrix();
+        latestEvent = event;
+
+        for (Subscriber subscriber : subscribers) {
+            subscriber.offer(event);
+        }
+    }
+
+    private void endStalledSubscriptions() {
+        long now = System.nanoTime();
+        for (Subscriber subscriber : subscribers) {
+            long sendStarted = subscriber.sendStarted;
+            if (sendStarted != 0 && now - sendStarted > sendTimeoutNanos) {
+                logger.log(Level.INFO, "FEE STREAM: Disconnected a subscriber that did not take the fees in time");
+                subscribers.remove(subscriber);
+                subscriber.stall();
+            }
+        }
+    }
+
+    private Event createEvent(long version, FeeMatrix feeMatrix, FeeMatrix previousFeeMatrix)
+            throws JsonProcessingException {
+        List<FeeChange> fees = new ArrayList<>();
+        for (Station station : stationRegistry.getStations()) {
+            for (Vehicle vehicle : Vehicle.values()) {
+                fees.add(new FeeChange(station, vehicle, feeMatrix.getResult(station, vehicle),
+                        previousFeeMatrix.getResult(station, vehicle)));
+            }
+        }
+
+        Map<String, Object> data = new LinkedHashMap<>();
+        data.put("version", version);
+        data.put("fees", fees);
+        return new Event(version, objectMapper.writeValueAsString(data));
+    }
+
+    private final class Subscriber {
+
+        private final SseEmitter emitter;
+
+        // Only the newest event that is not sent yet is kept
+        private final AtomicReference<Event> pending = new AtomicReference<>();
+
+        private final AtomicBoolean sending = new AtomicBoolean();
+
+        // System.nanoTime() when the event being sent was started, 0 when nothing is being sent
+        private volatile long sendStarted;
+
+        private volatile boolean stalled;
+
+        private volatile Future<?> sendTask;
+
+        private Subscriber(SseEmitter emitter) {
+            this.emitter = emitter;
+        }
+
+        private void offer(Event event) {
+            pending.set(event);
+            if (sending.compareAndSet(false, true)) {
+                submit();
+            }
+        }
+
+        private void submit() {
+            try {
+                sendTask = sendExecutor.submit(this::sendPending);
+            } catch (RejectedExecutionException e) {
+                // Every send thread is busy and the queue is full, the subscriber connects again
+                sending.set(false);
+                end(new IOException("Fee stream has too many subscribers waiting for the fees", e));
+            }
+        }
+
+        // The stalled send is interrupted, the send thread ends the subscription when the send returns
+        private void stall() {
+            stalled = true;
+            Future<?> task = sendTask;
+            if (task != null) {
+                task.cancel(true);
+            }
+        }
+
+        private void sendPending() {
+            try {
+                Event event;
+                while (!stalled && (event = pending.getAndSet(null)) != null) {
+                    sendStarted = System.nanoTime();
+                    emitter.send(event.toSseEvent());
+                    sendStarted = 0;
+                }
+            } catch (IOException | IllegalStateException e) {
+                // The subscriber has disconnected or the subscription has ended
+                end(e);
+                return;
+            } finally {
+                sendStarted = 0;
+                sending.set(false);
+            }
+            if (stalled) {
+                end(new IOException("Fee stream subscriber did not take the fees in time"));
+                return;
+            }
+            // An event offered after the loop ended and before sending was cleared
+            if (pending.get() != null && sending.compareAndSet(false, true)) {
+                submit();
+            }
+        }
+
+        private void end(Throwable cause) {
+            subscribers.remove(this);
+            emitter.completeWithError(cause);
+        }
+    }
+
+    private static final class Event {
+
+        private final long version;
+
+        private final String json;
+
+        private Event(long version, String json) {
+            this.version = version;
+            this.json = json;
+        }
+
+        private SseEmitter.SseEventBuilder toSseEvent() {
+            return SseEmitter.event()
+                    .id(Long.toString(version))
+                    .name(EVENTNAME)
+                    .data(json, MediaType.APPLICATION_JSON);
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package delivery.backend.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import delivery.backend.dto.FeeHistoryRow;
+import delivery.backend.dto.FeeResult;
+import delivery.backend.entities.Delivery;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.time.LocalDateTime;
+import java.util.concurrent.atomic.AtomicLong;
+
+@Service
+@RequiredArgsConstructor
+public class FeeHistoryService {
+
+    private final WeatherService weatherService;
+
+    private final FeeCalculator feeCalculator;
+
+    private final ObjectMapper objectMapper;
+
+    private static final int FLUSHEVERYROWS = 1024;
+
+
+    /**
+     * Writing the delivery fee of every observation of the station in the time range as newline-delimited JSON.
+     *
+     * The sorted weather history of the station is read once from the start of the range and every observation is
+     * priced with the FeeCalculator, the same fee rules as in DeliveryService. Rows are written as they are
+     * calculated, so memory use does not depend on the length of the range.
+     *
+     * @param delivery Object with the chosen station (city) and vehicle type.
+     * @param from Start of the range, inclusive.
+     * @param to End of the range, inclusive.
+     * @param results Fee of every observation is written here as newline-delimited JSON in time order.
+     * @return Number of written rows.
+     * @throws IOException when writing the results fails.
+     */
+    public long writeFeeHistory(Delivery delivery, LocalDateTime from, LocalDateTime to, Writer results)
+            throws IOException {
+        ObjectWriter rowWriter = objectMapper.writerFor(FeeHistoryRow.class);
+        AtomicLong rows = new AtomicLong();
+
+        try {
+            weatherService.forEachWeatherData(delivery.getStation(), from, to, weatherData -> {
+                FeeResult result = feeCalculator.calculateFee(delivery.getStation(), delivery.getVehicle(),
+                        weatherData, false);
+                try {
+                    results.write(rowWriter.writeValueAsString(new FeeHistoryRow(weatherData.getTimestamp(), result)));
+                    results.write('\n');
+                    if (rows.incrementAndGet() % FLUSHEVERYROWS == 0) {
+                        results.flush();
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        results.flush();
+        return rows.get();
+    }
+}
@@ -1,118 +1,255 @@
 package delivery.backend.services;
 
+import delivery.backend.cache.WeatherArchive;
+import delivery.backend.cache.WeatherCache;
 import delivery.backend.constants.Constants;
+import delivery.backend.dto.ImportResult;
 import delivery.backend.entities.WeatherData;
+import delivery.backend.enums.ImportOutcome;
+import delivery.backend.enums.Phenomenon;
+import delivery.backend.metrics.WeatherMetrics;
 import delivery.backend.repositories.WeatherRepository;
-import jakarta.annotation.PostConstruct;
+import delivery.backend.stations.StationRegistry;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
-import org.w3c.dom.Document;
-import org.w3c.dom.Node;
-import org.w3c.dom.NodeList;
-import org.xml.sax.SAXException;
+import org.springframework.transaction.support.TransactionTemplate;
 
-import javax.xml.parsers.DocumentBuilderFactory;
-import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLStreamException;
 import java.io.IOException;
-import java.math.BigInteger;
-import java.net.URL;
-import java.net.URLConnection;
-import java.time.Instant;
+import java.io.InputStream;
+import java.net.http.HttpTimeoutException;
 import java.time.LocalDateTime;
-import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
-import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
-import java.util.Objects;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeoutException;
 import java.util.logging.Level;
 import java.util.logging.Logger;
-import java.util.stream.Collectors;
-import java.util.stream.IntStream;
 
 @Component
 @RequiredArgsConstructor
 public class ImportWeatherService {
 
+    private static final String IMPORTCRON = "0 15 * * * *";
+
     private final WeatherRepository weatherRepository;
 
+    private final WeatherCache weatherCache;
+
+    private final StationRegistry stationRegistry;
+
     private final Logger logger = Logger.getLogger(ImportWeatherService.class.getName());
 
+    private final TransactionTemplate transactionTemplate;
+
+    private final WeatherFeedClient weatherFeedClient;
+
+    private final WeatherArchive weatherArchive;
+
+    private final WeatherMetrics weatherMetrics;
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    private volatile ImportResult lastImport;
+
+    private final Object saveLock = new Object();
+
+    @Value("${weather.import-on-startup:true}")
+    private boolean importOnStartup;
+
+
+    /**
+     * Importing weather data for certain stations from "www.ilmateenistus.ee" when the application has started.
+     *
+     * Does not wait for the import, so the startup time does not depend on the weather server. Until the WeatherCache
+     * has weather data (restored from the WeatherArchive or imported) the application is not ready to take traffic,
+     * see WeatherDataHealthIndicator. Turned off with weather.import-on-startup=false.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void importWeatherDataOnStartup() {
+        if (importOnStartup) {
+            importWeatherData();
+        }
+    }
 
     /**
      * Importing weather data for certain stations from "www.ilmateenistus.ee".
      *
-     * This task runs first when the application has started and then every hour at 15 minutes.
+     * This task runs every hour at 15 minutes, or as set in weather.import.cron (and when the application has started).
      *
-     * A URLConnection is made. The data is in the form of a xml, so it can be handled as a xml.
-     * A Document is created from the URLConnection's inputStream.
-     * From the Document we take:
+     * The feed is fetched with the WeatherFeedClient without blocking the scheduler thread. If the feed has not
+     * changed since the last import the server answers 304 Not Modified and nothing is read.
+     * The data is in the form of a xml, which is read with a streaming WeatherFeedReader.
+     * From the xml we take:
      *           - TimeStamp - Time at which the weather recordings were taken.
-     *           - Stations  - Only stations that are near cities deliveries are made in.
+     *           - Stations  - Only stations in the StationRegistry, which are near cities deliveries are made in.
      *
-     * Then only the data needed for calculations are saved into the database as WeatherData object.
+     * Then only the data needed for calculations are saved into the database as WeatherData object
+     * and published to the WeatherCache, so the latest weather data can be used without querying the database.
+     *
+     * @return Future of the import result or of null if the feed has not changed or could not be imported.
      */
-    @PostConstruct
-    @Scheduled(cron = "0 15 * * * *")
-    public void importWeatherData() {
-        try {
-            URLConnection urlConnection = new URL(Constants.WEATHERURL).openConnection();
-            urlConnection.addRequestProperty("Accept", "application/xml");
-
-
-            Document doc = DocumentBuilderFactory.newInstance().newDocumentBuilder()
-                    .parse(urlConnection.getInputStream());
-
-            NodeList stationNodes = doc.getDocumentElement().getChildNodes();
-            BigInteger timestamp = new BigInteger(doc.getDocumentElement().getAttribute("timestamp"));
+    @Scheduled(cron = "${weather.import.cron:" + IMPORTCRON + "}")
+    public CompletableFuture<ImportResult> importWeatherData() {
+        long start = System.nanoTime();
+        return weatherFeedClient.fetch()
+                .thenApply(feed -> importFeed(feed, start))
+                .exceptionally(e -> {
+                    weatherMetrics.recordImport(isTimeout(e) ? ImportOutcome.TIMEOUT : ImportOutcome.FAILURE,
+                            System.nanoTime() - start);
+                    logger.log(Level.WARNING, "Weather info was not imported. Encountered an error: ", e);
+                    return null;
+                });
+    }
 
-            List<Node> stations = IntStream.range(0, stationNodes.getLength())
-                    .mapToObj(stationNodes::item)
-                    .filter(Node::hasChildNodes)
-                    .filter(s -> Constants.STATIONNAMES.contains(s.getChildNodes().item(1).getTextContent()))
-                    .collect(Collectors.toList());
+    private ImportResult importFeed(WeatherFeedClient.Feed feed, long start) {
+        if (feed == null) {
+            weatherMetrics.recordImport(ImportOutcome.NOT_MODIFIED, System.nanoTime() - start);
+            logger.log(Level.INFO, "WEATHER DATA: Weather feed has not changed since the last import");
+            return null;
+        }
 
-            saveWeatherData(stations, timestamp);
+        try (InputStream body = feed.getBody()) {
+            List<WeatherData> weatherReports = new WeatherFeedReader(stationRegistry::contains).read(body);
+            ImportResult result = saveWeatherData(weatherReports);
+            weatherFeedClient.markImported(feed);
+            weatherMetrics.recordImport(ImportOutcome.SUCCESS, System.nanoTime() - start);
+            weatherMetrics.recordFeedSize(feed.getBytesRead());
 
             DateTimeFormatter dtf = DateTimeFormatter.ofPattern("yyyy/MM/dd HH:mm:ss");
             LocalDateTime now = LocalDateTime.now();
             logger.log(Level.INFO, "WEATHER DATA: Imported weather data at: " + dtf.format(now));
+            return result;
 
-        } catch (IOException | ParserConfigurationException | SAXException e) {
-            logger.log(Level.WARNING, "Weather info was not imported. Encountered an error: ", e);
+        } catch (IOException | XMLStreamException e) {
+            throw new CompletionException(e);
         }
     }
 
-    private void saveWeatherData(List<Node> stations, BigInteger timeStamp) {
+    // The request timeout of the client or the timeout of the whole response
+    private static boolean isTimeout(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof TimeoutException || cause instanceof HttpTimeoutException) {
+                return true;
+            }
+        }
+        return false;
+    }
 
-        for (Node station : stations) {
-            List<Node> stationData = IntStream.range(0, station.getChildNodes().getLength())
-                    .mapToObj(station.getChildNodes()::item)
-                    .filter(node -> !Objects.equals(node.getNodeName(), "#text")
-                            && Constants.IMPORTANTDATAKEYS.contains(node.getNodeName()))
-                    .collect(Collectors.toList());
+    /**
+     * Saving one import cycle of weather data.
+     *
+     * Observations that are already saved (same wmo code and timestamp) are skipped, so importing the same feed
+     * again does not create duplicates. The database has a unique constraint on the wmo code and timestamp.
+     *
+     * All new rows are saved in one transaction, so Hibernate sends the inserts in JDBC batches
+     * (spring.jpa.properties.hibernate.jdbc.batch_size) and the ids come from a pre-allocated sequence block.
+     * The new weather data is published to the WeatherCache after the transaction is committed, then a
+     * WeatherImportedEvent is published.
+     *
+     * @param weatherReports Weather data of one import cycle.
+     * @return Number of rows, number of new rows and the duration of saving them.
+     */
+    public ImportResult saveWeatherData(List<WeatherData> weatherReports) {
+        long start = System.nanoTime();
+        List<WeatherData> imported = saveNewWeatherData(weatherReports);
+        ImportResult result = new ImportResult(weatherReports.size(), imported.size(), System.nanoTime() - start);
+
+        weatherCache.publish(imported);
+        lastImport = result;
+        eventPublisher.publishEvent(new WeatherImportedEvent(result, weatherCache.getSnapshot()));
+
+        logger.log(Level.INFO, String.format("WEATHER DATA: Saved %d new rows of %d in %.1f ms (%.0f rows per second)",
+                result.getNewRows(), result.getRows(), result.getDurationNanos() / 1e6, result.getRowsPerSecond()));
+        return result;
+    }
 
-            WeatherData weatherData = createWeatherDataFromImport(stationData, timeStamp);
-            weatherRepository.save(weatherData);
+    /**
+     * Saving the weather data that is not saved yet without publishing it to the WeatherCache.
+     *
+     * Used for loading many rows at once, after which the WeatherCache is reloaded once instead of publishing
+     * every row.
+     * The saved weather data is added to the WeatherArchive, if it is enabled.
+     *
+     * @param weatherReports Weather data to save.
+     * @return The new weather data that was saved.
+     */
+    public List<WeatherData> saveNewWeatherData(List<WeatherData> weatherReports) {
+        for (WeatherData weatherData : weatherReports) {
+            weatherData.setPhenomenonClass(classifyPhenomenon(weatherData.getPhenomenon()));
         }
+
+        List<WeatherData> saved;
+        // Checking for saved observations and saving the new ones must not interleave with another import
+        synchronized (saveLock) {
+            saved = transactionTemplate.execute(status ->
+                    weatherRepository.saveAll(withoutSavedObservations(weatherReports)));
+        }
+        weatherArchive.addAll(saved);
+        weatherMetrics.recordRows(weatherReports.size(), saved.size());
+        return saved;
     }
 
-    private WeatherData createWeatherDataFromImport(List<Node> stationData, BigInteger timeStamp) {
+    /**
+     * Getting the result of the latest saved import cycle.
+     *
+     * @return Number of saved rows and the duration of saving them or null if nothing is imported yet.
+     */
+    public ImportResult getLastImport() {
+        return lastImport;
+    }
+
+    private List<WeatherData> withoutSavedObservations(List<WeatherData> weatherReports) {
+        if (weatherReports.isEmpty()) {
+            return weatherReports;
+        }
+
+        Set<Integer> wmoCodes = new HashSet<>();
+        LocalDateTime from = LocalDateTime.MAX;
+        LocalDateTime to = LocalDateTime.MIN;
+        for (WeatherData weatherData : weatherReports) {
+            wmoCodes.add(weatherData.getWmoCode());
+            from = weatherData.getTimestamp().isBefore(from) ? weatherData.getTimestamp() : from;
+            to = weatherData.getTimestamp().isAfter(to) ? weatherData.getTimestamp() : to;
+        }
 
-        WeatherData weatherData = new WeatherData();
-        weatherData.setTimestamp(LocalDateTime
-                .ofInstant(Instant.ofEpochSecond(timeStamp.longValue()), ZoneId.of("Europe/Tallinn")));
+        Map<Integer, Set<LocalDateTime>> saved = new HashMap<>();
+        for (WeatherRepository.ObservationKey key
+                : weatherRepository.findByWmoCodeInAndTimestampBetween(wmoCodes, from, to)) {
+            saved.computeIfAbsent(key.getWmoCode(), wmoCode -> new HashSet<>()).add(key.getTimestamp());
+        }
 
-        for (Node dataPoint : stationData) {
-            switch (dataPoint.getNodeName()) {
-                case "name" -> weatherData.setStationName(dataPoint.getTextContent());
-                case "wmocode" -> weatherData.setWmoCode(Integer.parseInt(dataPoint.getTextContent()));
-                case "phenomenon" -> weatherData.setPhenomenon(dataPoint.getTextContent());
-                case "airtemperature" -> weatherData.setAirTemp(Float.parseFloat(dataPoint.getTextContent()));
-                case "windspeed" -> weatherData.setWindSpeed(Float.parseFloat(dataPoint.getTextContent()));
+        // Also skips observations that are more than once in the import cycle
+        List<WeatherData> newReports = new ArrayList<>();
+        for (WeatherData weatherData : weatherReports) {
+            if (saved.computeIfAbsent(weatherData.getWmoCode(), wmoCode -> new HashSet<>())
+                    .add(weatherData.getTimestamp())) {
+                newReports.add(weatherData);
             }
         }
-        return weatherData;
+        return newReports;
+    }
+
+    private Phenomenon classifyPhenomenon(String phenomenon) {
+        Phenomenon phenomenonClass = Phenomenon.classify(phenomenon);
+
+        // Weather data saved without a phenomenon has no phenomenon, not an unknown one
+        if (phenomenonClass == Phenomenon.NONE && phenomenon != null && !phenomenon.isBlank()
+                && !Constants.NOFEEPHENOMENA.contains(phenomenon)) {
+            weatherMetrics.recordUnknownPhenomenon();
+            logger.log(Level.WARNING, "WEATHER DATA: Unknown weather phenomenon: " + phenomenon);
+        }
+        return phenomenonClass;
     }
 }
@@ -0,0 +1,114 @@
+package delivery.backend.services;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import delivery.backend.dto.FeeQuoteRequest;
+import delivery.backend.dto.FeeQuoteResponse;
+import delivery.backend.dto.RepricingResult;
+import delivery.backend.stations.StationRegistry;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+@Service
+@RequiredArgsConstructor
+public class RepricingService {
+
+    private final DeliveryService deliveryService;
+
+    private final WeatherService weatherService;
+
+    private final StationRegistry stationRegistry;
+
+    private final ObjectMapper objectMapper;
+
+    private final Logger logger = Logger.getLogger(RepricingService.class.getName());
+
+    // Orders sorted by timestamp reuse the weather data of the same few dates
+    private static final int WEATHERLOOKUPCAPACITY = 64;
+
+    private static final int FLUSHEVERYROWS = 1024;
+
+
+    /**
+     * Repricing orders from newline-delimited JSON.
+     *
+     * Every line is an order with station wmo code, vehicle type and timestamp. The orders are read, priced and
+     * written one by one, so memory use does not depend on the number of orders.
+     * The fee rules are the same as in DeliveryService. Orders sorted by timestamp are the fastest to price,
+     * because orders close in time use the same weather data.
+     *
+     * @param orders Orders as newline-delimited JSON.
+     * @param results Priced orders are written here as newline-delimited JSON.
+     * @return Number of priced orders and rows per second.
+     * @throws IOException when reading the orders or writing the results fails.
+     */
+    public RepricingResult reprice(Reader orders, Writer results) throws IOException {
+
+        ObjectReader orderReader = objectMapper.readerFor(FeeQuoteRequest.class);
+        ObjectWriter resultWriter = objectMapper.writerFor(FeeQuoteResponse.class);
+        WeatherLookup weatherLookup = new WeatherLookup(weatherService, stationRegistry.size(),
+                WEATHERLOOKUPCAPACITY);
+        BufferedReader reader = new BufferedReader(orders);
+
+        long start = System.nanoTime();
+        long rows = 0;
+        long errors = 0;
+        String line;
+
+        while ((line = reader.readLine()) != null) {
+            if (line.isBlank()) {
+                continue;
+            }
+
+            FeeQuoteResponse response;
+            try {
+                FeeQuoteRequest request = orderReader.readValue(line);
+                response = deliveryService.calculateDeliveryFee(request, weatherLookup);
+            } catch (JsonProcessingException e) {
+                response = new FeeQuoteResponse();
+                response.setError("Order is not valid JSON");
+            }
+
+            if (response.getError() != null) {
+                errors++;
+            }
+            results.write(resultWriter.writeValueAsString(response));
+            results.write('\n');
+
+            if (++rows % FLUSHEVERYROWS == 0) {
+                results.flush();
+            }
+        }
+        results.flush();
+
+        RepricingResult result = new RepricingResult(rows, errors, System.nanoTime() - start);
+        logger.log(Level.INFO, String.format("REPRICING: Priced %d orders (%d errors) at %.0f rows per second",
+                result.getRows(), result.getErrors(), result.getRowsPerSecond()));
+        return result;
+    }
+
+    /**
+     * Writing the summary of a repricing run as the last line of the priced orders.
+     *
+     * The line is an object with only a "summary" field, so a client can tell it apart from the priced orders.
+     *
+     * @param result Summary of the run.
+     * @param results Priced orders as newline-delimited JSON.
+     * @throws IOException when writing the summary fails.
+     */
+    public void writeSummary(RepricingResult result, Writer results) throws IOException {
+        results.write(objectMapper.writeValueAsString(Map.of("summary", result)));
+        results.write('\n');
+        results.flush();
+    }
+}
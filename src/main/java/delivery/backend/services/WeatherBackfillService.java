@@ -0,0 +1,215 @@
+package delivery.backend.services;
+
+import delivery.backend.cache.WeatherArchive;
+import delivery.backend.cache.WeatherCache;
+import delivery.backend.dto.BackfillResult;
+import delivery.backend.dto.BackfillStatus;
+import delivery.backend.entities.WeatherData;
+import delivery.backend.enums.BackfillState;
+import delivery.backend.stations.StationRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.xml.stream.XMLStreamException;
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+
+@Component
+@RequiredArgsConstructor
+public class WeatherBackfillService {
+
+    private final ImportWeatherService importWeatherService;
+
+    private final WeatherCache weatherCache;
+
+    private final WeatherArchive weatherArchive;
+
+    private final StationRegistry stationRegistry;
+
+    private final WeatherRetentionService weatherRetentionService;
+
+    private final Logger logger = Logger.getLogger(WeatherBackfillService.class.getName());
+
+    // Runs one backfill job at a time, so the request that starts it does not wait for it
+    private final ExecutorService jobExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "weather-backfill");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final AtomicLong jobs = new AtomicLong();
+
+    private final AtomicReference<BackfillStatus> status = new AtomicReference<>();
+
+    @Value("${weather.backfill.threads:#{T(java.lang.Runtime).getRuntime().availableProcessors()}}")
+    private int threads;
+
+    @Value("${weather.backfill.batch-size:5000}")
+    private int batchSize;
+
+    /**
+     * Starting a backfill of the directory in the background.
+     *
+     * Only one backfill runs at a time. The progress is followed with getStatus.
+     *
+     * @param directory Directory of the archived feeds.
+     * @return Status of the started backfill job or null if another backfill is still running.
+     */
+    public BackfillStatus startBackfill(Path directory) {
+        BackfillStatus current = status.get();
+        if (current != null && current.getState() == BackfillState.RUNNING) {
+            return null;
+        }
+        BackfillStatus started = new BackfillStatus(jobs.incrementAndGet(), BackfillState.RUNNING,
+                directory.toString(), LocalDateTime.now(), null, null);
+        if (!status.compareAndSet(current, started)) {
+            return null;
+        }
+
+        jobExecutor.execute(() -> {
+            try {
+                status.set(started.finish(backfill(directory)));
+            } catch (IOException | RuntimeException e) {
+                logger.log(Level.WARNING, "WEATHER BACKFILL: Backfill of " + directory + " failed", e);
+                status.set(started.fail(e.getMessage()));
+            }
+        });
+        return started;
+    }
+
+    /**
+     * Getting the status of the latest backfill job.
+     *
+     * @return Status of the running or the last finished backfill job or null if no backfill has been started.
+     */
+    public BackfillStatus getStatus() {
+        return status.get();
+    }
+
+    /**
+     * Stopping the running backfill when the application stops.
+     */
+    @PreDestroy
+    public void close() {
+        jobExecutor.shutdownNow();
+    }
+
+    /**
+     * Loading archived observations feeds into the database.
+     *
+     * Every ".xml" file in the directory and its subdirectories is read with the WeatherFeedReader of the import.
+     * The files are read in parallel by a pool of weather.backfill.threads threads, at most twice as many files
+     * are read ahead of the saving, so memory use does not depend on the number of files.
+     * The weather data is saved in transactions of weather.backfill.batch-size rows. Observations that are already
+     * saved are skipped, so the same directory can be loaded again. A file that can not be read is skipped.
+     *
+     * The loaded history is merged into the WeatherArchive once at the end instead of once per batch, and the
+     * WeatherCache is reloaded once at the end, so the loaded history can be used for dated fees. This is done also
+     * when the backfill fails, the batches saved before the failure stay in the database.
+     * The loaded history can be older than the last compaction, so the next compaction checks the whole history.
+     *
+     * @param directory Directory of the archived feeds.
+     * @return Number of files and rows and the duration of the backfill.
+     * @throws IOException when the directory can not be read.
+     */
+    public BackfillResult backfill(Path directory) throws IOException {
+        List<Path> files;
+        // Feeds are usually named by time, so batches hold observations of nearby times
+        try (Stream<Path> paths = Files.walk(directory)) {
+            files = paths.filter(Files::isRegularFile)
+                    .filter(path -> path.getFileName().toString().endsWith(".xml"))
+                    .sorted()
+                    .toList();
+        }
+
+        long start = System.nanoTime();
+        long failedFiles = 0;
+        long rows = 0;
+        long newRows = 0;
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CompletionService<List<WeatherData>> readFiles = new ExecutorCompletionService<>(executor);
+        // The reader has no state of its own, so one reader is shared by the threads
+        WeatherFeedReader reader = new WeatherFeedReader(stationRegistry::contains);
+        weatherArchive.startBulkLoad();
+        try {
+            int submitted = 0;
+            while (submitted < Math.min(files.size(), threads * 2)) {
+                readFiles.submit(readTask(reader, files.get(submitted++)));
+            }
+
+            List<WeatherData> batch = new ArrayList<>(batchSize);
+            for (int done = 0; done < files.size(); done++) {
+                List<WeatherData> weatherReports;
+                try {
+                    weatherReports = readFiles.take().get();
+                } catch (ExecutionException e) {
+                    failedFiles++;
+                    logger.log(Level.WARNING, "WEATHER BACKFILL: " + e.getCause().getMessage());
+                    continue;
+                } finally {
+                    if (submitted < files.size()) {
+                        readFiles.submit(readTask(reader, files.get(submitted++)));
+                    }
+                }
+
+                batch.addAll(weatherReports);
+                if (batch.size() >= batchSize) {
+                    rows += batch.size();
+                    newRows += importWeatherService.saveNewWeatherData(batch).size();
+                    batch = new ArrayList<>(batchSize);
+                }
+            }
+            if (!batch.isEmpty()) {
+                rows += batch.size();
+                newRows += importWeatherService.saveNewWeatherData(batch).size();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Weather backfill was interrupted", e);
+        } finally {
+            executor.shutdownNow();
+            // Also when a batch failed, the batches that were saved before it are used for dated fees
+            weatherArchive.finishBulkLoad();
+            weatherCache.reload();
+            weatherRetentionService.recheckAll();
+        }
+
+        BackfillResult result = new BackfillResult(files.size(), failedFiles, rows, newRows,
+                System.nanoTime() - start);
+        logger.log(Level.INFO, String.format("WEATHER BACKFILL: Loaded %d files (%d failed) with %d new rows of %d"
+                        + " in %.1f s (%.0f files per second, %.0f rows per second)",
+                result.getFiles(), result.getFailedFiles(), result.getNewRows(), result.getRows(),
+                result.getDurationNanos() / 1e9, result.getFilesPerSecond(), result.getRowsPerSecond()));
+        return result;
+    }
+
+    private static Callable<List<WeatherData>> readTask(WeatherFeedReader reader, Path file) {
+        return () -> {
+            try (InputStream feed = new BufferedInputStream(Files.newInputStream(file))) {
+                return reader.read(feed);
+            } catch (XMLStreamException | IllegalArgumentException e) {
+                throw new IOException("Could not read " + file + ": " + e.getMessage(), e);
+            }
+        };
+    }
+}
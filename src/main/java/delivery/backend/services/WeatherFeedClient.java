@@ -0,0 +1,202 @@
+package delivery.backend.services;
+
+import delivery.backend.constants.Constants;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.zip.GZIPInputStream;
+
+@Component
+public class WeatherFeedClient {
+
+    @Value("${weather.url:" + Constants.WEATHERURL + "}")
+    private String weatherUrl;
+
+    @Value("${weather.connect-timeout:5s}")
+    private Duration connectTimeout;
+
+    @Value("${weather.request-timeout:20s}")
+    private Duration requestTimeout;
+
+    private HttpClient httpClient;
+
+    // Validators of the last imported feed
+    private volatile String eTag;
+
+    private volatile String lastModified;
+
+
+    /**
+     * Creating the HTTP client when the application starts.
+     */
+    @PostConstruct
+    public void createHttpClient() {
+        httpClient = HttpClient.newBuilder()
+                .connectTimeout(connectTimeout)
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .build();
+    }
+
+    /**
+     * Fetching the observations feed without blocking the calling thread.
+     *
+     * The request asks for a gzip compressed feed and sends the ETag and Last-Modified of the last imported feed,
+     * so an unchanged feed is answered with 304 Not Modified and no body.
+     * The request timeout applies to the whole download, the headers and the body. A feed server that stops
+     * sending the body does not block the import, the download is cancelled when the time is up.
+     *
+     * @return Future of the feed or of null if the feed has not changed since the last imported feed.
+     *         Completes exceptionally when the request fails, times out or gets an error status.
+     */
+    public CompletableFuture<Feed> fetch() {
+        HttpRequest.Builder request;
+        try {
+            request = HttpRequest.newBuilder(URI.create(weatherUrl))
+                    .timeout(requestTimeout)
+                    .header("Accept", "application/xml")
+                    .header("Accept-Encoding", "gzip")
+                    .GET();
+        } catch (IllegalArgumentException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+
+        if (eTag != null) {
+            request.header("If-None-Match", eTag);
+        }
+        if (lastModified != null) {
+            request.header("If-Modified-Since", lastModified);
+        }
+
+        CompletableFuture<HttpResponse<byte[]>> exchange = httpClient.sendAsync(request.build(),
+                HttpResponse.BodyHandlers.ofByteArray());
+        CompletableFuture<Feed> feed = exchange.thenApply(this::toFeed)
+                .orTimeout(requestTimeout.toMillis(), TimeUnit.MILLISECONDS);
+
+        // The timeout of the request is over when the headers are received, the body is cancelled here
+        feed.whenComplete((result, e) -> {
+            if (e instanceof TimeoutException) {
+                exchange.cancel(true);
+            }
+        });
+        return feed;
+    }
+
+    /**
+     * Remembering the feed as imported, so the next fetch gets 304 Not Modified if the feed has not changed.
+     *
+     * Called only after the feed is imported, so a feed that failed to import is downloaded again.
+     *
+     * @param feed The imported feed.
+     */
+    public void markImported(Feed feed) {
+        eTag = feed.eTag;
+        lastModified = feed.lastModified;
+    }
+
+    private Feed toFeed(HttpResponse<byte[]> response) {
+        if (response.statusCode() == 304) {
+            return null;
+        } else if (response.statusCode() != 200) {
+            throw new CompletionException(new IOException("Weather feed responded with HTTP status "
+                    + response.statusCode()));
+        }
+
+        try {
+            InputStream body = new ByteArrayInputStream(response.body());
+            if (response.headers().firstValue("Content-Encoding").orElse("").equalsIgnoreCase("gzip")) {
+                body = new GZIPInputStream(body);
+            }
+            return new Feed(new CountingInputStream(body), response.headers().firstValue("ETag").orElse(null),
+                    response.headers().firstValue("Last-Modified").orElse(null));
+        } catch (IOException e) {
+            throw new CompletionException(e);
+        }
+    }
+
+    /**
+     * Feed object.
+     *
+     * A downloaded observations feed. The body is downloaded before the feed is read, so reading it never waits
+     * for the feed server.
+     */
+    public static final class Feed {
+
+        private final CountingInputStream body;
+
+        private final String eTag;
+
+        private final String lastModified;
+
+        private Feed(CountingInputStream body, String eTag, String lastModified) {
+            this.body = body;
+            this.eTag = eTag;
+            this.lastModified = lastModified;
+        }
+
+        /**
+         * Getting the body of the feed.
+         *
+         * @return The uncompressed body, closed by the reader.
+         */
+        public InputStream getBody() {
+            return body;
+        }
+
+        /**
+         * Getting the size of the feed.
+         *
+         * @return Number of uncompressed bytes read from the body so far.
+         */
+        public long getBytesRead() {
+            return body.count;
+        }
+    }
+
+    private static final class CountingInputStream extends FilterInputStream {
+
+        private long count;
+
+        private CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int read = in.read();
+            if (read >= 0) {
+                count++;
+            }
+            return read;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int read = in.read(buffer, offset, length);
+            if (read > 0) {
+                count += read;
+            }
+            return read;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = in.skip(n);
+            count += skipped;
+            return skipped;
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package delivery.backend.services;
+
+import delivery.backend.constants.Constants;
+import delivery.backend.entities.WeatherData;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.InputStream;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.IntPredicate;
+
+/**
+ * WeatherFeedReader object.
+ *
+ * Reads the observations feed of "www.ilmateenistus.ee" with a streaming pull parser.
+ * The feed is read in one pass and only one station is held in memory at a time, so memory use does not depend
+ * on the size of the feed. Only the fields in Constants.IMPORTANTDATAKEYS are read, in any order.
+ */
+public class WeatherFeedReader {
+
+    private static final XMLInputFactory XMLINPUTFACTORY = createXMLInputFactory();
+
+    private static final ZoneId ZONE = ZoneId.of("Europe/Tallinn");
+
+    private final IntPredicate stationFilter;
+
+    /**
+     * WeatherFeedReader object.
+     *
+     * @param stationFilter Tells by the wmo code if the weather data of a station is read.
+     *                      Stations without a wmo code are never read.
+     */
+    public WeatherFeedReader(IntPredicate stationFilter) {
+        this.stationFilter = stationFilter;
+    }
+
+    /**
+     * WeatherFeedReader object that reads every station with a wmo code.
+     */
+    public WeatherFeedReader() {
+        this(wmoCode -> true);
+    }
+
+    /**
+     * Reading the weather data of the stations from the feed.
+     *
+     * The weather phenomenon is not classified, the phenomenon class of every weather data is NONE.
+     * Missing air temperature or wind speed is read as NaN.
+     *
+     * @param feed The observations feed.
+     * @return Weather data of every station that passed the filter.
+     * @throws XMLStreamException when the feed is not valid xml.
+     * @throws IllegalArgumentException when the feed has no timestamp or a number can not be read.
+     */
+    public List<WeatherData> read(InputStream feed) throws XMLStreamException, IllegalArgumentException {
+        XMLStreamReader reader = XMLINPUTFACTORY.createXMLStreamReader(feed);
+
+        try {
+            List<WeatherData> weatherReports = new ArrayList<>();
+            LocalDateTime timestamp = null;
+
+            while (reader.hasNext()) {
+                if (reader.next() != XMLStreamConstants.START_ELEMENT) {
+                    continue;
+                }
+
+                if (reader.getLocalName().equals("observations")) {
+                    timestamp = readTimestamp(reader);
+                } else if (reader.getLocalName().equals("station")) {
+                    if (timestamp == null) {
+                        throw new IllegalArgumentException("Weather feed has no timestamp");
+                    }
+                    WeatherData weatherData = readStation(reader, timestamp);
+                    if (weatherData != null) {
+                        weatherReports.add(weatherData);
+                    }
+                }
+            }
+            return weatherReports;
+        } finally {
+            reader.close();
+        }
+    }
+
+    private LocalDateTime readTimestamp(XMLStreamReader reader) {
+        String timestamp = reader.getAttributeValue(null, "timestamp");
+        if (timestamp == null || timestamp.isBlank()) {
+            throw new IllegalArgumentException("Weather feed has no timestamp");
+        }
+        return LocalDateTime.ofInstant(Instant.ofEpochSecond(Long.parseLong(timestamp.trim())), ZONE);
+    }
+
+    // Reads until the end of the station element, returns null if the station is not read
+    private WeatherData readStation(XMLStreamReader reader, LocalDateTime timestamp) throws XMLStreamException {
+        String name = null;
+        String wmoCode = "";
+        String phenomenon = "";
+        String airTemp = "";
+        String windSpeed = "";
+
+        while (reader.nextTag() == XMLStreamConstants.START_ELEMENT) {
+            String element = reader.getLocalName();
+
+            if (!Constants.IMPORTANTDATAKEYS.contains(element)) {
+                skipElement(reader);
+                continue;
+            }
+
+            String value = reader.getElementText().trim();
+            switch (element) {
+                case "name" -> name = value;
+                case "wmocode" -> wmoCode = value;
+                case "phenomenon" -> phenomenon = value;
+                case "airtemperature" -> airTemp = value;
+                case "windspeed" -> windSpeed = value;
+            }
+        }
+
+        if (wmoCode.isEmpty() || !stationFilter.test(Integer.parseInt(wmoCode))) {
+            return null;
+        }
+
+        WeatherData weatherData = new WeatherData();
+        weatherData.setStationName(name);
+        weatherData.setWmoCode(Integer.parseInt(wmoCode));
+        weatherData.setPhenomenon(phenomenon);
+        weatherData.setAirTemp(parseMeasurement(airTemp));
+        weatherData.setWindSpeed(parseMeasurement(windSpeed));
+        weatherData.setTimestamp(timestamp);
+        return weatherData;
+    }
+
+    private static void skipElement(XMLStreamReader reader) throws XMLStreamException {
+        int depth = 1;
+        while (depth > 0) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                depth++;
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                depth--;
+            }
+        }
+    }
+
+    private static double parseMeasurement(String measurement) {
+        return measurement.isEmpty() ? Double.NaN : Float.parseFloat(measurement);
+    }
+
+    private static XMLInputFactory createXMLInputFactory() {
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        // The feed has no DTD, so external entities are never needed
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        return factory;
+    }
+}
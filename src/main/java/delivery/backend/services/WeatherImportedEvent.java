@@ -0,0 +1,43 @@
+package delivery.backend.services;
+
+import delivery.backend.cache.WeatherSnapshot;
+import delivery.backend.dto.ImportResult;
+
+/**
+ * Event that is published when an import cycle of weather data has been saved and published to the WeatherCache.
+ */
+public class WeatherImportedEvent {
+
+    private final ImportResult importResult;
+
+    private final WeatherSnapshot snapshot;
+
+    /**
+     * WeatherImportedEvent object.
+     *
+     * @param importResult Number of rows, number of new rows and the duration of saving them.
+     * @param snapshot The snapshot of the WeatherCache after the import.
+     */
+    public WeatherImportedEvent(ImportResult importResult, WeatherSnapshot snapshot) {
+        this.importResult = importResult;
+        this.snapshot = snapshot;
+    }
+
+    /**
+     * Getting the result of the import.
+     *
+     * @return Number of rows, number of new rows and the duration of saving them.
+     */
+    public ImportResult getImportResult() {
+        return importResult;
+    }
+
+    /**
+     * Getting the snapshot after the import.
+     *
+     * @return The snapshot of the WeatherCache after the import.
+     */
+    public WeatherSnapshot getSnapshot() {
+        return snapshot;
+    }
+}
@@ -0,0 +1,89 @@
+package delivery.backend.services;
+
+import delivery.backend.cache.WeatherHistory;
+import delivery.backend.stations.Station;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+
+/**
+ * WeatherLookup object.
+ *
+ * Remembers the observation found for a station and time, so deliveries with the same station and time look up
+ * the weather history only once. Every station has a fixed number of slots chosen by the time and a new time
+ * replaces the time in its slot, so the memory used does not depend on the number of deliveries.
+ *
+ * The weather history of a station is taken when the station is first looked up and the found observations are
+ * indexes in it. A lookup is used by one thread for one batch of deliveries.
+ */
+public class WeatherLookup {
+
+    private static final long EMPTY = Long.MIN_VALUE;
+
+    private final WeatherService weatherService;
+
+    private final int slotMask;
+
+    // Indexed by station id, filled when the station is first looked up
+    private final WeatherHistory[] histories;
+
+    private final long[][] epochSeconds;
+
+    private final int[][] observations;
+
+    /**
+     * WeatherLookup object.
+     *
+     * @param weatherService Service used to find the weather data.
+     * @param stations Number of stations in the StationRegistry.
+     * @param capacity Number of remembered times of every station, rounded up to a power of two.
+     */
+    public WeatherLookup(WeatherService weatherService, int stations, int capacity) {
+        this.weatherService = weatherService;
+        this.slotMask = Integer.highestOneBit(Math.max(1, capacity * 2 - 1)) - 1;
+        this.histories = new WeatherHistory[stations];
+        this.epochSeconds = new long[stations][];
+        this.observations = new int[stations][];
+    }
+
+    /**
+     * Getting the weather history of the station that the found observations are in.
+     *
+     * @param station near the chosen city.
+     * @return the weather history of the station.
+     */
+    public WeatherHistory getWeatherHistory(Station station) {
+        WeatherHistory history = histories[station.getId()];
+        if (history == null) {
+            history = weatherService.getWeatherHistory(station);
+            histories[station.getId()] = history;
+            epochSeconds[station.getId()] = new long[slotMask + 1];
+            observations[station.getId()] = new int[slotMask + 1];
+            Arrays.fill(epochSeconds[station.getId()], EMPTY);
+        }
+        return history;
+    }
+
+    /**
+     * Finding the observation closest to the chosen date.
+     *
+     * @param station near the chosen city.
+     * @param date is the chosen date.
+     * @return index of the observation in getWeatherHistory or WeatherHistory.NOTFOUND if it is more than 1 day
+     *         apart or there is no weather data.
+     */
+    public int findClosestObservation(Station station, LocalDateTime date) {
+        WeatherHistory history = getWeatherHistory(station);
+        long epochSecond = weatherService.getSecondsFromLocalDateTime(date);
+        // Observation times are multiples of minutes, so the low bits are mixed before choosing the slot
+        int slot = (int) ((epochSecond * 0x9E3779B97F4A7C15L) >>> 32) & slotMask;
+
+        long[] times = epochSeconds[station.getId()];
+        int[] found = observations[station.getId()];
+        if (times[slot] != epochSecond) {
+            times[slot] = epochSecond;
+            found[slot] = weatherService.findClosestObservation(history, epochSecond);
+        }
+        return found[slot];
+    }
+}
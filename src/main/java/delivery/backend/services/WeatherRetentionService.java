@@ -0,0 +1,193 @@
+package delivery.backend.services;
+
+import delivery.backend.cache.WeatherArchive;
+import delivery.backend.cache.WeatherCache;
+import delivery.backend.dto.CompactionResult;
+import delivery.backend.metrics.WeatherMetrics;
+import delivery.backend.repositories.WeatherRepository;
+import delivery.backend.stations.Station;
+import delivery.backend.stations.StationRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+@Component
+@RequiredArgsConstructor
+public class WeatherRetentionService {
+
+    private final WeatherRepository weatherRepository;
+
+    private final WeatherCache weatherCache;
+
+    private final WeatherArchive weatherArchive;
+
+    private final StationRegistry stationRegistry;
+
+    private final WeatherMetrics weatherMetrics;
+
+    private final TransactionTemplate transactionTemplate;
+
+    // A page is a whole number of hours and days
+    private static final Duration PAGE = Duration.ofDays(31);
+
+    private final Logger logger = Logger.getLogger(WeatherRetentionService.class.getName());
+
+    @Value("${weather.retention.raw-days:30}")
+    private int rawDays;
+
+    @Value("${weather.retention.downsample-to:DAYS}")
+    private ChronoUnit downsampleTo;
+
+    // Rows before this time have been downsampled, null when the whole history has to be checked
+    private volatile LocalDateTime compactedBefore;
+
+
+    /**
+     * Checking the retention settings when the application starts.
+     *
+     * Only hours and days are allowed, so every kept observation is at most half a day from the times it stands
+     * for and dated fees keep working within the 1 day tolerance of the WeatherService.
+     */
+    @PostConstruct
+    public void checkSettings() {
+        if (rawDays < 1) {
+            throw new IllegalArgumentException("weather.retention.raw-days must be at least 1, got " + rawDays);
+        }
+        if (downsampleTo != ChronoUnit.HOURS && downsampleTo != ChronoUnit.DAYS) {
+            throw new IllegalArgumentException("weather.retention.downsample-to must be HOURS or DAYS, got "
+                    + downsampleTo);
+        }
+    }
+
+    /**
+     * Downsampling the weather data that is older than the raw retention period.
+     *
+     * This task runs every night at 3:30, or as set in weather.retention.cron.
+     */
+    @Scheduled(cron = "${weather.retention.cron:0 30 3 * * *}")
+    public void compactWeatherData() {
+        compactWeatherData(LocalDateTime.now().minusDays(rawDays));
+    }
+
+    /**
+     * Downsampling the weather data that is older than the given time.
+     *
+     * The observations of every station are split into periods of weather.retention.downsample-to (an hour or
+     * a day). Of every period only the observation closest to the middle of the period is kept, with all of its
+     * fields, so it can be used for fee calculations like any other observation. Periods that already have only one
+     * observation are not changed, so running the compaction again deletes nothing.
+     *
+     * Only the window that has expired since the last compaction is checked (the whole history the first time or
+     * after recheckAll). The window is read in pages of 31 days with only the id and time of every row, and the
+     * downsampled rows are deleted with one bulk delete per page.
+     *
+     * The WeatherArchive is downsampled the same way, so dated fees find the same observations in both.
+     * The deleted observations are removed from the weather history of the WeatherCache.
+     *
+     * @param before Observations before this time are downsampled, the time is rounded down to a whole period.
+     * @return Number of checked and deleted rows and the duration of the compaction.
+     */
+    public synchronized CompactionResult compactWeatherData(LocalDateTime before) {
+        LocalDateTime cutoff = before.truncatedTo(downsampleTo);
+        LocalDateTime from = compactedBefore;
+        long start = System.nanoTime();
+        long checkedRows = 0;
+        long deletedRows = 0;
+
+        for (int wmoCode : weatherRepository.findAllWmoCodes()) {
+            LocalDateTime pageStart = from;
+            if (pageStart == null) {
+                WeatherRepository.ObservationTime first =
+                        weatherRepository.findFirstByWmoCodeOrderByTimestampAsc(wmoCode);
+                pageStart = first == null ? cutoff : first.getTimestamp().truncatedTo(downsampleTo);
+            }
+
+            // Pages are whole periods, so every period is downsampled within one page
+            while (pageStart.isBefore(cutoff)) {
+                LocalDateTime pageEnd = pageStart.plus(PAGE).isBefore(cutoff) ? pageStart.plus(PAGE) : cutoff;
+                List<WeatherRepository.ObservationTime> rows = weatherRepository
+                        .findByWmoCodeAndTimestampGreaterThanEqualAndTimestampBeforeOrderByTimestampAsc(
+                                wmoCode, pageStart, pageEnd);
+                List<WeatherRepository.ObservationTime> deleted = findDownsampledRows(rows);
+
+                if (!deleted.isEmpty()) {
+                    List<Long> ids = deleted.stream().map(WeatherRepository.ObservationTime::getId).toList();
+                    transactionTemplate.executeWithoutResult(status -> weatherRepository.deleteAllByIdInBatch(ids));
+                    weatherMetrics.recordDeletedRows(ids.size());
+                    removeFromCache(wmoCode, deleted);
+                }
+                checkedRows += rows.size();
+                deletedRows += deleted.size();
+                pageStart = pageEnd;
+            }
+        }
+
+        long deletedArchiveRows = weatherArchive.compact(from, cutoff, downsampleTo);
+        if (from == null || cutoff.isAfter(from)) {
+            compactedBefore = cutoff;
+        }
+
+        CompactionResult result = new CompactionResult(checkedRows, deletedRows, deletedArchiveRows,
+                System.nanoTime() - start);
+        logger.log(Level.INFO, String.format("WEATHER RETENTION: Deleted %d of %d rows and %d archived rows from %s"
+                        + " to %s in %.1f ms", result.getDeletedRows(), result.getCheckedRows(),
+                result.getDeletedArchiveRows(), from == null ? "the start" : from, cutoff,
+                result.getDurationNanos() / 1e6));
+        return result;
+    }
+
+    /**
+     * Checking the whole history again in the next compaction.
+     *
+     * Used when weather data older than the last compaction has been saved, e.g. by a backfill.
+     */
+    public void recheckAll() {
+        compactedBefore = null;
+    }
+
+    private void removeFromCache(int wmoCode, List<WeatherRepository.ObservationTime> deleted) {
+        Station station = stationRegistry.get(wmoCode);
+        if (station != null) {
+            weatherCache.remove(station, deleted.stream().map(WeatherRepository.ObservationTime::getTimestamp)
+                    .toList());
+        }
+    }
+
+    // Every row that is not the closest to the middle of its period, rows are in time order
+    private List<WeatherRepository.ObservationTime> findDownsampledRows(List<WeatherRepository.ObservationTime> rows) {
+        List<WeatherRepository.ObservationTime> deleted = new ArrayList<>();
+        Duration halfPeriod = downsampleTo.getDuration().dividedBy(2);
+
+        WeatherRepository.ObservationTime kept = null;
+        LocalDateTime period = null;
+        for (WeatherRepository.ObservationTime row : rows) {
+            LocalDateTime middle = row.getTimestamp().truncatedTo(downsampleTo).plus(halfPeriod);
+
+            if (!middle.equals(period)) {
+                kept = row;
+                period = middle;
+            } else if (distance(row, middle) < distance(kept, middle)) {
+                deleted.add(kept);
+                kept = row;
+            } else {
+                deleted.add(row);
+            }
+        }
+        return deleted;
+    }
+
+    private static long distance(WeatherRepository.ObservationTime row, LocalDateTime time) {
+        return Math.abs(Duration.between(row.getTimestamp(), time).getSeconds());
+    }
+}
@@ -1,102 +1,89 @@
 package delivery.backend.services;
 
+import delivery.backend.cache.WeatherArchive;
+import delivery.backend.cache.WeatherCache;
+import delivery.backend.cache.WeatherHistory;
 import delivery.backend.entities.WeatherData;
-import delivery.backend.exceptions.WeatherDataNotFoundException;
-import delivery.backend.exceptions.WrongDateException;
 import delivery.backend.repositories.WeatherRepository;
+import delivery.backend.stations.Station;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
 import java.time.ZoneId;
 import java.time.ZonedDateTime;
-import java.util.Comparator;
-import java.util.List;
-import java.util.Optional;
+import java.util.function.Consumer;
 
 @Service
 @RequiredArgsConstructor
 public class WeatherService {
 
+    private final WeatherCache weatherCache;
+
+    private final WeatherArchive weatherArchive;
+
     private final WeatherRepository weatherRepository;
 
     private static final long DAYINSECONDS = 86400;
 
 
     /**
-     * Getting the weather data from the weather station near the chosen city using station's wmo code.
+     * Getting the latest weather data from the weather station near the chosen city.
      *
-     * If a date is not chosen:
-     *              First find all the weather reports from the chosen station, then
-     *              compare import dates and find the latest (the biggest date).
+     * The latest weather data of the chosen station is taken from the WeatherCache snapshot,
+     * so no database query is made.
      *
-     * If a date is chosen:
-     *              We find the closest weather data by comparing import dates, the chosen date and the time difference
-     *              between given dates.
-     *
-     * @param wmoCode of the weather station.
-     * @param date is the chosen date (Optional).
-     * @return found weather data.
-     * @throws WeatherDataNotFoundException when weather data is not found.
-     * @throws WrongDateException when the date difference between chosen date and closest weather data import date is
-     *                            longer than 1 day.
+     * @param station near the chosen city.
+     * @return the latest weather data or null if there is no weather data for the station.
      */
-    public WeatherData getWeatherData(int wmoCode, Optional<String> date) throws WeatherDataNotFoundException,
-                                                                                    WrongDateException {
-
-        List<WeatherData> weatherReports = weatherRepository.findAllByWmoCode(wmoCode);
-
-        if (date.isEmpty()) {
-
-            Optional<WeatherData> weatherData = weatherReports.stream()
-                    .max(Comparator.comparing(WeatherData::getTimestamp));
-
-            return Optional.of(weatherData).get()
-                    .orElseThrow(() -> {throw new WeatherDataNotFoundException("Did not find weather data for station");});
-        } else {
-
-            LocalDateTime chosenDate = getLocalDateTimeFromString(date.get());
-            return findClosestWeatherDataToDate(weatherReports, chosenDate);
-        }
+    public WeatherData getLatestWeatherData(Station station) {
+        return weatherCache.getSnapshot().get(station);
     }
 
-    private WeatherData findClosestWeatherDataToDate(List<WeatherData> weatherReports,
-                                                     LocalDateTime chosenDateTime) throws WrongDateException {
-
-        WeatherData closestWeatherData = null;
-
-        for (WeatherData weatherData : weatherReports) {
-            if (weatherData.getTimestamp().isBefore(chosenDateTime)) {
-
-                closestWeatherData = weatherData;
-
-            } else if (weatherData.getTimestamp().isAfter(chosenDateTime)) {
-
-                closestWeatherData = calculateClosestToChosenDate(closestWeatherData, weatherData, chosenDateTime);
-                break;
-            }
+    /**
+     * Finding the weather data closest to the chosen date from the weather station near the chosen city.
+     *
+     * Only the closest weather data before and after the chosen date are queried from the database, with the index
+     * of the unique wmo code and timestamp constraint, then the closer one is chosen if it is at most 1 day apart
+     * from the chosen date. The saved entity is returned with all of its fields, fees are calculated from the
+     * weather history instead (getWeatherHistory), which does not query the database.
+     * When the WeatherArchive is enabled and the database has no weather data within 1 day, like after a restart
+     * with the in-memory database, the memory-mapped archive of the station is searched.
+     *
+     * @param station near the chosen city.
+     * @param chosenDateTime is the chosen date.
+     * @return the closest weather data or null if it is more than 1 day apart or there is no weather data.
+     */
+    public WeatherData findClosestWeatherData(Station station, LocalDateTime chosenDateTime) {
+        WeatherData dataBeforeDate = weatherRepository
+                .findFirstByWmoCodeAndTimestampLessThanEqualOrderByTimestampDesc(station.getWmoCode(), chosenDateTime)
+                .orElse(null);
+        WeatherData dataAfterDate = weatherRepository
+                .findFirstByWmoCodeAndTimestampGreaterThanEqualOrderByTimestampAsc(station.getWmoCode(), chosenDateTime)
+                .orElse(null);
+
+        long epochSecond = getSecondsFromLocalDateTime(chosenDateTime);
+        WeatherData closest = calculateClosestToChosenDate(dataBeforeDate, dataAfterDate, epochSecond);
+        if (closest == null && weatherArchive.isEnabled()) {
+            return weatherArchive.get(station).findClosest(epochSecond, DAYINSECONDS);
         }
-        return closestWeatherData;
+        return closest;
     }
 
     private WeatherData calculateClosestToChosenDate(WeatherData dataBeforeDate,
                                                      WeatherData dataAfterDate,
-                                                     LocalDateTime chosenDateTime) throws WrongDateException {
+                                                     long chosenDateSec) {
 
-        long dateBeforeSec;
-        long dateAfterSec = getSecondsFromLocalDateTime(dataAfterDate.getTimestamp());
-        long chosenDateSec = getSecondsFromLocalDateTime(chosenDateTime);
-
-        long dateBeforeDiff;
-        long dateAfterDiff = Math.abs(chosenDateSec - dateAfterSec);
-
-        // If date before chosen date does not exist
+        // If date before or after the chosen date does not exist
         // The difference is the biggest it can be
-        if (dataBeforeDate == null) {
-            dateBeforeDiff = getSecondsFromLocalDateTime(chosenDateTime);
-        } else {
-            dateBeforeSec = getSecondsFromLocalDateTime(dataBeforeDate.getTimestamp());
-            dateBeforeDiff = Math.abs(chosenDateSec - dateBeforeSec);
+        long dateBeforeDiff = Long.MAX_VALUE;
+        long dateAfterDiff = Long.MAX_VALUE;
+
+        if (dataBeforeDate != null) {
+            dateBeforeDiff = Math.abs(chosenDateSec - getSecondsFromLocalDateTime(dataBeforeDate.getTimestamp()));
+        }
+        if (dataAfterDate != null) {
+            dateAfterDiff = Math.abs(chosenDateSec - getSecondsFromLocalDateTime(dataAfterDate.getTimestamp()));
         }
 
         if (dateBeforeDiff >= dateAfterDiff && dateAfterDiff <= DAYINSECONDS) {
@@ -104,19 +91,95 @@ public class WeatherService {
         } else if (dateBeforeDiff <= DAYINSECONDS) {
             return dataBeforeDate;
         } else {
-            throw new WrongDateException("We can't calculate fee for this date. " +
-                    "Our closest weather data is more than 1 day apart");
+            return null;
         }
     }
 
-    private long getSecondsFromLocalDateTime(LocalDateTime date) {
-        ZonedDateTime ZonedDateTime = date.atZone(ZoneId.of("Europe/Tallinn"));
-        return ZonedDateTime.toInstant().toEpochMilli() / 1000;
+    /**
+     * Getting the weather history of the weather station near the chosen city.
+     *
+     * When the WeatherArchive is enabled the view reads the memory-mapped archive of the station, otherwise the
+     * in-memory weather history.
+     *
+     * @param station near the chosen city.
+     * @return a view of the weather history that is read by index.
+     */
+    public WeatherHistory getWeatherHistory(Station station) {
+        if (weatherArchive.isEnabled()) {
+            return weatherArchive.get(station).getView();
+        }
+        return weatherCache.getHistory(station).getView();
+    }
+
+    /**
+     * Finding the observation closest to the chosen date in the weather history.
+     *
+     * The closest observation before and after the chosen date are found with a binary search and the closer one is
+     * chosen if it is at most 1 day apart. The index of the observation in the history is returned, so no weather
+     * data objects are created.
+     *
+     * @param history is the weather history of the station.
+     * @param chosenDateTime is the chosen date.
+     * @return the index of the closest observation or WeatherHistory.NOTFOUND if it is more than 1 day apart or
+     *         there is no weather data.
+     */
+    public int findClosestObservation(WeatherHistory history, LocalDateTime chosenDateTime) {
+        return findClosestObservation(history, getSecondsFromLocalDateTime(chosenDateTime));
+    }
+
+    /**
+     * Finding the observation closest to the chosen time in the weather history.
+     *
+     * @param history is the weather history of the station.
+     * @param epochSecond is the chosen time in epoch seconds.
+     * @return the index of the closest observation or WeatherHistory.NOTFOUND if it is more than 1 day apart or
+     *         there is no weather data.
+     */
+    public int findClosestObservation(WeatherHistory history, long epochSecond) {
+        return history.findClosest(epochSecond, DAYINSECONDS);
+    }
+
+    /**
+     * Going through the weather data of the weather station near the chosen city in the time range.
+     *
+     * The sorted weather history of the station is read once from the start of the range to the end of it.
+     * When the WeatherArchive is enabled the memory-mapped archive of the station is read instead.
+     *
+     * @param station near the chosen city.
+     * @param from is the start of the range, inclusive.
+     * @param to is the end of the range, inclusive.
+     * @param action is called with every weather data in the range in time order.
+     */
+    public void forEachWeatherData(Station station, LocalDateTime from, LocalDateTime to,
+                                   Consumer<WeatherData> action) {
+        long fromSecond = getSecondsFromLocalDateTime(from);
+        long toSecond = getSecondsFromLocalDateTime(to);
+        if (weatherArchive.isEnabled()) {
+            weatherArchive.get(station).forEachBetween(fromSecond, toSecond, action);
+        } else {
+            weatherCache.getHistory(station).forEachBetween(fromSecond, toSecond, action);
+        }
     }
 
-    private LocalDateTime getLocalDateTimeFromString(String date) {
-        LocalDateTime localDateTime = LocalDateTime.parse(date);
-        ZonedDateTime ZonedDateTime = localDateTime.atZone(ZoneId.of("Europe/Tallinn"));
-        return ZonedDateTime.toLocalDateTime();
+    /**
+     * Checking if there is any weather data for the station.
+     *
+     * @param station near the chosen city.
+     * @return true if the weather history or the archive of the station is not empty.
+     */
+    public boolean hasWeatherData(Station station) {
+        return weatherCache.getHistory(station).size() > 0
+                || weatherArchive.isEnabled() && weatherArchive.get(station).size() > 0;
+    }
+
+    /**
+     * Getting the epoch seconds of a date in the time zone of the weather stations.
+     *
+     * @param date is the local date.
+     * @return the date in epoch seconds.
+     */
+    public long getSecondsFromLocalDateTime(LocalDateTime date) {
+        ZonedDateTime ZonedDateTime = date.atZone(ZoneId.of("Europe/Tallinn"));
+        return ZonedDateTime.toInstant().toEpochMilli() / 1000;
     }
 }
@@ -0,0 +1,115 @@
+package delivery.backend.stations;
+
+/**
+ * IntObjectMap object.
+ *
+ * Hash map with primitive int keys. Keys and values are kept in two arrays with open addressing,
+ * so a lookup does not box the key and reads at most a few neighbouring array elements.
+ * Null values are not allowed, a null value marks a free slot.
+ *
+ * @param <V> Type of the values.
+ */
+final class IntObjectMap<V> {
+
+    private int[] keys;
+
+    private Object[] values;
+
+    private int size;
+
+    /**
+     * IntObjectMap object.
+     *
+     * @param expectedSize Number of keys the map can hold without growing.
+     */
+    IntObjectMap(int expectedSize) {
+        // At most half of the slots are used, so the probe sequences stay short
+        int capacity = Integer.highestOneBit(Math.max(expectedSize, 1) * 2 - 1) << 1;
+        keys = new int[capacity];
+        values = new Object[capacity];
+    }
+
+    /**
+     * Getting the number of keys in the map.
+     *
+     * @return The number of keys.
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Getting the value of the key.
+     *
+     * @param key The key.
+     * @return The value or null if the key is not in the map.
+     */
+    @SuppressWarnings("unchecked")
+    V get(int key) {
+        int mask = keys.length - 1;
+        int slot = hash(key) & mask;
+
+        while (values[slot] != null) {
+            if (keys[slot] == key) {
+                return (V) values[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        return null;
+    }
+
+    /**
+     * Adding a key with a value, the old value of the key is replaced.
+     *
+     * @param key The key.
+     * @param value The value, not null.
+     * @return The old value or null if the key was not in the map.
+     */
+    @SuppressWarnings("unchecked")
+    V put(int key, V value) {
+        if (value == null) {
+            throw new IllegalArgumentException("IntObjectMap does not allow null values");
+        }
+        if ((size + 1) * 2 > keys.length) {
+            grow();
+        }
+
+        int mask = keys.length - 1;
+        int slot = hash(key) & mask;
+
+        while (values[slot] != null) {
+            if (keys[slot] == key) {
+                V old = (V) values[slot];
+                values[slot] = value;
+                return old;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        values[slot] = value;
+        size++;
+        return null;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void grow() {
+        int[] oldKeys = keys;
+        Object[] oldValues = values;
+
+        keys = new int[oldKeys.length * 2];
+        values = new Object[oldKeys.length * 2];
+        size = 0;
+
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldValues[i] != null) {
+                put(oldKeys[i], (V) oldValues[i]);
+            }
+        }
+    }
+
+    // Wmo codes are close to each other, so the bits are mixed before taking the slot
+    private static int hash(int key) {
+        int hash = key * 0x9E3779B9;
+        return hash ^ (hash >>> 16);
+    }
+}
@@ -0,0 +1,69 @@
+package delivery.backend.stations;
+
+import delivery.backend.enums.Vehicle;
+
+/**
+ * Station object.
+ *
+ * A weather station near a city we are doing deliveries in, with the regional base fee of every vehicle type.
+ * Stations are created by the StationRegistry from the station configuration.
+ */
+public final class Station {
+
+    private final int id;
+
+    private final String city;
+
+    private final int wmoCode;
+
+    private final int[] baseFees;
+
+    Station(int id, String city, int wmoCode, int[] baseFees) {
+        this.id = id;
+        this.city = city;
+        this.wmoCode = wmoCode;
+        this.baseFees = baseFees;
+    }
+
+    /**
+     * Getting the index of the station. Stations are numbered from 0, so the index can be used in arrays.
+     *
+     * @return The index of the station in the StationRegistry.
+     */
+    public int getId() {
+        return id;
+    }
+
+    /**
+     * Getting the city near the weather station.
+     *
+     * @return The city, for example TALLINN.
+     */
+    public String getCity() {
+        return city;
+    }
+
+    /**
+     * Getting the wmo code of the weather station.
+     *
+     * @return The wmo code of the weather station.
+     */
+    public int getWmoCode() {
+        return wmoCode;
+    }
+
+    /**
+     * Getting the regional base fee.
+     *
+     * @param vehicle Type of the vehicle for the deliverer.
+     * @return The base fee in cents or a negative number if the vehicle type is not used in the city.
+     */
+    public int getBaseFee(Vehicle vehicle) {
+        return baseFees[vehicle.ordinal()];
+    }
+
+    @Override
+    public String toString() {
+        return city;
+    }
+}
@@ -0,0 +1,172 @@
+package delivery.backend.stations;
+
+import delivery.backend.enums.Vehicle;
+import delivery.backend.exceptions.StationNotFoundException;
+import delivery.backend.rules.FeeRules;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Properties;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+@Component
+@RequiredArgsConstructor
+public class StationRegistry {
+
+    private static final String PREFIX = "station.";
+
+    private static final String WMOCODE = ".wmocode";
+
+    private final ResourceLoader resourceLoader;
+
+    private final Logger logger = Logger.getLogger(StationRegistry.class.getName());
+
+    @Value("${stations.location:classpath:stations.properties}")
+    private String stationsLocation;
+
+    private List<Station> stations = Collections.emptyList();
+
+    private IntObjectMap<Station> stationsByWmoCode = new IntObjectMap<>(0);
+
+
+    /**
+     * Loading the stations from the station configuration when the application starts.
+     *
+     * @throws IOException when the station configuration can not be read.
+     */
+    @PostConstruct
+    public void loadStations() throws IOException {
+        Resource resource = resourceLoader.getResource(stationsLocation);
+        Properties properties = new Properties();
+
+        try (Reader reader = new InputStreamReader(resource.getInputStream(), StandardCharsets.UTF_8)) {
+            properties.load(reader);
+        }
+        load(properties);
+        logger.log(Level.INFO, "STATIONS: Loaded " + stations.size() + " stations from " + stationsLocation);
+    }
+
+    /**
+     * Getting the station with the wmo code.
+     *
+     * @param wmoCode The wmo code of the weather station.
+     * @return The station near the chosen city.
+     * @throws StationNotFoundException when there is no station with the wmo code.
+     */
+    public Station fromWmoCode(int wmoCode) throws StationNotFoundException {
+        Station station = stationsByWmoCode.get(wmoCode);
+
+        if (station == null) {
+            throw new StationNotFoundException("Weather station for this city was not found");
+        }
+        return station;
+    }
+
+    /**
+     * Getting the station with the wmo code without throwing an exception.
+     *
+     * @param wmoCode The wmo code of the weather station.
+     * @return The station or null if there is no station with the wmo code.
+     */
+    public Station get(int wmoCode) {
+        return stationsByWmoCode.get(wmoCode);
+    }
+
+    /**
+     * Checking if weather data of the weather station is used.
+     *
+     * @param wmoCode The wmo code of the weather station.
+     * @return True if there is a station with the wmo code.
+     */
+    public boolean contains(int wmoCode) {
+        return stationsByWmoCode.get(wmoCode) != null;
+    }
+
+    /**
+     * Getting every station. The index of a station in the list is its id.
+     *
+     * @return Every station sorted by wmo code.
+     */
+    public List<Station> getStations() {
+        return stations;
+    }
+
+    /**
+     * Getting the number of stations.
+     *
+     * @return The number of stations.
+     */
+    public int size() {
+        return stations.size();
+    }
+
+    /**
+     * Reading the stations from the station configuration.
+     *
+     * Every station has a city, a wmo code and a base fee for every vehicle type:
+     *      station.CITY.wmocode=26038
+     *      station.CITY.basefee.CAR=4
+     *
+     * @param properties The station configuration.
+     * @throws IllegalArgumentException when a value is missing or can not be read.
+     */
+    void load(Properties properties) throws IllegalArgumentException {
+        List<String> cities = new ArrayList<>();
+        for (String key : properties.stringPropertyNames()) {
+            if (key.startsWith(PREFIX) && key.endsWith(WMOCODE)) {
+                cities.add(key.substring(PREFIX.length(), key.length() - WMOCODE.length()));
+            }
+        }
+
+        List<Station> loaded = new ArrayList<>(cities.size());
+        cities.sort(Comparator.comparingInt(city -> parseWmoCode(properties, city)));
+
+        IntObjectMap<Station> byWmoCode = new IntObjectMap<>(cities.size());
+        for (String city : cities) {
+            int[] baseFees = new int[Vehicle.values().length];
+            for (Vehicle vehicle : Vehicle.values()) {
+                baseFees[vehicle.ordinal()] = FeeRules.parseFee(getValue(properties,
+                        PREFIX + city + ".basefee." + vehicle.name()));
+            }
+
+            Station station = new Station(loaded.size(), city.toUpperCase(), parseWmoCode(properties, city), baseFees);
+            if (byWmoCode.put(station.getWmoCode(), station) != null) {
+                throw new IllegalArgumentException("Wmo code " + station.getWmoCode() + " is used more than once");
+            }
+            loaded.add(station);
+        }
+
+        stationsByWmoCode = byWmoCode;
+        stations = Collections.unmodifiableList(loaded);
+    }
+
+    private static int parseWmoCode(Properties properties, String city) {
+        String wmoCode = getValue(properties, PREFIX + city + WMOCODE);
+        try {
+            return Integer.parseInt(wmoCode);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Wmo code " + wmoCode + " of " + city + " is not a number");
+        }
+    }
+
+    private static String getValue(Properties properties, String key) {
+        String value = properties.getProperty(key);
+        if (value == null || value.isBlank()) {
+            throw new IllegalArgumentException("Station configuration " + key + " is missing");
+        }
+        return value.trim();
+    }
+}
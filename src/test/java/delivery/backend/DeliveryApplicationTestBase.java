@@ -1,14 +1,21 @@
 package delivery.backend;
 
+import com.jayway.jsonpath.JsonPath;
+import delivery.backend.cache.WeatherCache;
 import delivery.backend.entities.WeatherData;
 import delivery.backend.repositories.WeatherRepository;
 import delivery.backend.services.ImportWeatherService;
+import delivery.backend.stations.StationRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
+import java.nio.charset.StandardCharsets;
 import java.time.Instant;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
@@ -26,6 +33,10 @@ public class DeliveryApplicationTestBase {
     protected ImportWeatherService importWeatherService;
     @Autowired
     protected WeatherRepository weatherRepository;
+    @Autowired
+    protected WeatherCache weatherCache;
+    @Autowired
+    protected StationRegistry stationRegistry;
 
     protected static final String WEATHERDATANOTFOUNDERROR = "Did not find weather data for station";
     protected static final String DATESTOOFARAPARTERROR = "We can't calculate fee for this date." +
@@ -43,12 +54,27 @@ public class DeliveryApplicationTestBase {
     protected static final String SCOOTER = "scooter";
     protected static final String BIKE = "bike";
 
+    // Shared by every test application context, so the contexts can be cached
+    protected static final StubWeatherServer WEATHERSERVER = StubWeatherServer.start();
+
     protected static final LocalDateTime BASEDATE = LocalDateTime
             .ofInstant(Instant.ofEpochSecond(1693131973L), ZoneId.of("Europe/Tallinn"));
 
+    @DynamicPropertySource
+    static void weatherServerProperties(DynamicPropertyRegistry registry) {
+        registry.add("weather.url", WEATHERSERVER::getUrl);
+    }
+
     @BeforeEach
     void setUp() {
+        WEATHERSERVER.reset();
         weatherRepository.deleteAll();
+        weatherCache.reload();
+    }
+
+    // Message of the fee result shown to the customer
+    protected static String getMessage(MvcResult result) throws Exception {
+        return JsonPath.read(result.getResponse().getContentAsString(StandardCharsets.UTF_8), "$.message");
     }
 
     protected void saveGoodWeatherDataToDatabase() {
@@ -67,6 +93,7 @@ public class DeliveryApplicationTestBase {
         List<WeatherData> data = new ArrayList<>(Arrays.asList(tallinnData, tartuData, parnuData));
 
         weatherRepository.saveAll(data);
+        weatherCache.reload();
     }
 
     protected void saveBadWeatherDataToDatabase() {
@@ -85,6 +112,7 @@ public class DeliveryApplicationTestBase {
         List<WeatherData> data = new ArrayList<>(Arrays.asList(tallinnData, tartuData, parnuData));
 
         weatherRepository.saveAll(data);
+        weatherCache.reload();
     }
 
     protected void saveWorseWeatherDataToDatabase() {
@@ -101,6 +129,7 @@ public class DeliveryApplicationTestBase {
         List<WeatherData> data = new ArrayList<>(Arrays.asList(tallinnData, tartuData, parnuData));
 
         weatherRepository.saveAll(data);
+        weatherCache.reload();
     }
 
     protected void saveDifferentDatesDifferentWeather() {
@@ -128,5 +157,6 @@ public class DeliveryApplicationTestBase {
                 tallinnData4, tallinnData5, tallinnData6));
 
         weatherRepository.saveAll(data);
+        weatherCache.reload();
     }
 }
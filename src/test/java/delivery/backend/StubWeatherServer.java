@@ -0,0 +1,187 @@
+package delivery.backend;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.springframework.core.io.ClassPathResource;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Local HTTP server that serves a recorded observations feed instead of "www.ilmateenistus.ee".
+ *
+ * Answers with 503 until a feed is set. Supports gzip, ETag and Last-Modified like the real feed server.
+ */
+public final class StubWeatherServer {
+
+    private static final String LASTMODIFIED = "Sun, 27 Aug 2023 10:26:13 GMT";
+
+    private final HttpServer server;
+
+    private final AtomicInteger requests = new AtomicInteger();
+
+    private final AtomicInteger notModified = new AtomicInteger();
+
+    private final AtomicInteger versions = new AtomicInteger();
+
+    private volatile byte[] feed;
+
+    private volatile String eTag;
+
+    private volatile long delayMillis;
+
+    private volatile long stallMillis;
+
+    private volatile String lastAcceptEncoding;
+
+    private StubWeatherServer(HttpServer server) {
+        this.server = server;
+    }
+
+    /**
+     * Starting the server on a free port of the loopback address.
+     *
+     * @return The started server.
+     */
+    public static StubWeatherServer start() {
+        try {
+            HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+            StubWeatherServer stub = new StubWeatherServer(server);
+            server.createContext("/observations.php", stub::handle);
+            // A stalled response must not hold up the next request
+            server.setExecutor(Executors.newCachedThreadPool(runnable -> {
+                Thread thread = new Thread(runnable, "stub-weather-server");
+                thread.setDaemon(true);
+                return thread;
+            }));
+            server.start();
+            return stub;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Getting the url of the feed.
+     *
+     * @return The url to use as weather.url.
+     */
+    public String getUrl() {
+        return "http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort()
+                + "/observations.php";
+    }
+
+    /**
+     * Serving a recorded feed from the test resources.
+     *
+     * @param resource Path of the feed in the test resources or null to answer with 503.
+     */
+    public void serve(String resource) {
+        try {
+            feed = resource == null ? null : new ClassPathResource(resource).getContentAsByteArray();
+            // Every served feed is a new version of the feed
+            eTag = resource == null ? null : "\"" + versions.incrementAndGet() + "\"";
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Delaying every response, so the client times out.
+     *
+     * @param delayMillis Delay before the response headers are sent.
+     */
+    public void delay(long delayMillis) {
+        this.delayMillis = delayMillis;
+    }
+
+    /**
+     * Stalling every response after the headers and the first bytes of the body are sent.
+     *
+     * @param stallMillis Time the rest of the body is not sent.
+     */
+    public void stall(long stallMillis) {
+        this.stallMillis = stallMillis;
+    }
+
+    /**
+     * Resetting the server to answer with 503 and clearing the counters.
+     */
+    public void reset() {
+        serve(null);
+        delayMillis = 0;
+        stallMillis = 0;
+        requests.set(0);
+        notModified.set(0);
+        lastAcceptEncoding = null;
+    }
+
+    public int getRequests() {
+        return requests.get();
+    }
+
+    public int getNotModified() {
+        return notModified.get();
+    }
+
+    public String getLastAcceptEncoding() {
+        return lastAcceptEncoding;
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        requests.incrementAndGet();
+        lastAcceptEncoding = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+
+        try (exchange) {
+            if (delayMillis > 0) {
+                Thread.sleep(delayMillis);
+            }
+
+            byte[] body = feed;
+            if (body == null) {
+                exchange.sendResponseHeaders(503, -1);
+                return;
+            }
+
+            exchange.getResponseHeaders().add("ETag", eTag);
+            exchange.getResponseHeaders().add("Last-Modified", LASTMODIFIED);
+
+            if (eTag.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+                notModified.incrementAndGet();
+                exchange.sendResponseHeaders(304, -1);
+                return;
+            }
+
+            if (lastAcceptEncoding != null && lastAcceptEncoding.contains("gzip")) {
+                ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+                try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+                    gzip.write(body);
+                }
+                body = compressed.toByteArray();
+                exchange.getResponseHeaders().add("Content-Encoding", "gzip");
+            }
+
+            exchange.getResponseHeaders().add("Content-Type", "text/xml; charset=UTF-8");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream response = exchange.getResponseBody()) {
+                if (stallMillis > 0) {
+                    response.write(body, 0, 16);
+                    response.flush();
+                    Thread.sleep(stallMillis);
+                    response.write(body, 16, body.length - 16);
+                } else {
+                    response.write(body);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
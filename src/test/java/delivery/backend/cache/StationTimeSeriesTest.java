@@ -0,0 +1,49 @@
+package delivery.backend.cache;
+
+import delivery.backend.DeliveryApplicationTestBase;
+import delivery.backend.entities.WeatherData;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.openjdk.jol.info.GraphLayout;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Logger;
+
+class StationTimeSeriesTest extends DeliveryApplicationTestBase {
+
+    private static final int HOURSINYEAR = 365 * 24;
+
+    private final Logger logger = Logger.getLogger(StationTimeSeriesTest.class.getName());
+
+    @Test
+    void testMemoryFootprint() {
+        for (int years : new int[] {1, 5}) {
+            List<WeatherData> weatherReports = createHourlyWeatherData(years * HOURSINYEAR);
+            StationTimeSeries history = new StationTimeSeries(stationRegistry.fromWmoCode(26038));
+            history.replaceAll(weatherReports);
+
+            // Only the arrays of the history, the station is shared with the rest of the application
+            long columnsBytes = GraphLayout.parseInstance(history.getView()).totalSize();
+            long entitiesBytes = GraphLayout.parseInstance(weatherReports).totalSize();
+            logger.info(String.format("WEATHER HISTORY FOOTPRINT: %d years, %d observations: StationTimeSeries %d KB,"
+                            + " List<WeatherData> %d KB", years, weatherReports.size(), columnsBytes / 1024,
+                    entitiesBytes / 1024));
+
+            Assertions.assertTrue(columnsBytes < weatherReports.size() * 18L + 1024, "Columns: " + columnsBytes);
+            Assertions.assertTrue(columnsBytes * 5 < entitiesBytes, columnsBytes + " vs " + entitiesBytes);
+        }
+    }
+
+    // Like the rows loaded by Hibernate, every entity has its own strings, timestamp and boxed wmo code
+    private static List<WeatherData> createHourlyWeatherData(int hours) {
+        List<WeatherData> weatherReports = new ArrayList<>(hours);
+        for (int hour = 0; hour < hours; hour++) {
+            WeatherData weatherData = new WeatherData(new String("Tallinn-Harku"), 26038,
+                    -5.0 + hour % 30, 2.0 + hour % 10, new String("Light snow shower"), BASEDATE.plusHours(hour));
+            weatherData.setId((long) hour);
+            weatherReports.add(weatherData);
+        }
+        return weatherReports;
+    }
+}
@@ -0,0 +1,235 @@
+package delivery.backend.cache;
+
+import delivery.backend.DeliveryApplicationTestBase;
+import delivery.backend.entities.WeatherData;
+import delivery.backend.enums.Phenomenon;
+import delivery.backend.services.WeatherService;
+import delivery.backend.stations.Station;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+
+class WeatherArchiveTest extends DeliveryApplicationTestBase {
+
+    @TempDir
+    private static Path archiveDirectory;
+
+    @TempDir
+    private Path directory;
+
+    @Autowired
+    private WeatherArchive weatherArchive;
+
+    @Autowired
+    private WeatherService weatherService;
+
+    @DynamicPropertySource
+    static void archiveProperties(DynamicPropertyRegistry registry) {
+        registry.add("weather.archive.directory", () -> archiveDirectory.toString());
+    }
+
+    @Test
+    void testAddAndFind() throws IOException {
+        Station tallinn = stationRegistry.fromWmoCode(26038);
+        try (StationArchive archive = StationArchive.open(tallinn, directory.resolve("26038.wda"))) {
+            // More records than the initial capacity, so the mapping grows
+            archive.addAll(hourly(0, 2000, 2));
+            // Older observations and an observation that is already archived
+            archive.addAll(List.of(observation(-5), observation(1), observation(0)));
+
+            Assertions.assertEquals(2002, archive.size());
+            Assertions.assertEquals(BASEDATE.minusHours(5), archive.findClosest(epochSecond(-6), 3600).getTimestamp());
+            Assertions.assertEquals(BASEDATE.plusHours(1), archive.findClosest(epochSecond(1), 0).getTimestamp());
+            Assertions.assertNull(archive.findClosest(epochSecond(-8), 3600));
+            Assertions.assertEquals(BASEDATE.plusHours(3998), archive.getLatest().getTimestamp());
+
+            WeatherData weatherData = archive.findClosest(epochSecond(2), 0);
+            Assertions.assertEquals("Tallinn-Harku", weatherData.getStationName());
+            Assertions.assertEquals(26038, weatherData.getWmoCode());
+            Assertions.assertEquals(-2.5, weatherData.getAirTemp());
+            Assertions.assertEquals(4.5, weatherData.getWindSpeed());
+            Assertions.assertEquals(Phenomenon.SNOW, weatherData.getPhenomenonClass());
+
+            // The view reads the same observation by index without creating weather data
+            WeatherHistory view = archive.getView();
+            int index = view.findClosest(epochSecond(2), 0);
+            Assertions.assertEquals(epochSecond(2), view.getEpochSecond(index));
+            Assertions.assertEquals(-2.5, view.getAirTemp(index));
+            Assertions.assertEquals(Phenomenon.SNOW, view.getPhenomenonClass(index));
+            Assertions.assertEquals(WeatherHistory.NOTFOUND, view.findClosest(epochSecond(-8), 3600));
+
+            // Observations at -5, 0, 1, 2 and 4 hours
+            List<WeatherData> range = new ArrayList<>();
+            archive.forEachBetween(epochSecond(-5), epochSecond(4), range::add);
+            Assertions.assertEquals(5, range.size());
+            Assertions.assertEquals(BASEDATE.minusHours(5), range.get(0).getTimestamp());
+            Assertions.assertEquals(BASEDATE.plusHours(4), range.get(4).getTimestamp());
+        }
+
+        // Opening the file again, like after a restart
+        try (StationArchive archive = StationArchive.open(tallinn, directory.resolve("26038.wda"))) {
+            Assertions.assertEquals(2002, archive.size());
+            Assertions.assertEquals("Tallinn-Harku", archive.getLatest().getStationName());
+        }
+    }
+
+    @Test
+    void testDeferredMerge() throws IOException {
+        Station tallinn = stationRegistry.fromWmoCode(26038);
+        try (StationArchive archive = StationArchive.open(tallinn, directory.resolve("26038.wda"))) {
+            archive.addAll(hourly(0, 10, 1));
+            // Older batches in any order wait in memory, a newer observation is appended at once
+            archive.addAll(List.of(observation(-20), observation(-10), observation(10)), true);
+            archive.addAll(List.of(observation(-30), observation(-10), observation(5)), true);
+
+            Assertions.assertEquals(11, archive.size());
+            Assertions.assertNull(archive.findClosest(epochSecond(-20), 0));
+
+            archive.flush();
+            Assertions.assertEquals(14, archive.size());
+            List<WeatherData> range = new ArrayList<>();
+            archive.forEachBetween(epochSecond(-30), epochSecond(0), range::add);
+            Assertions.assertEquals(List.of(BASEDATE.minusHours(30), BASEDATE.minusHours(20),
+                    BASEDATE.minusHours(10), BASEDATE), range.stream().map(WeatherData::getTimestamp).toList());
+        }
+    }
+
+    @Test
+    void testDeferredMergeAtPendingLimit() throws IOException {
+        Station tallinn = stationRegistry.fromWmoCode(26038);
+        try (StationArchive archive = StationArchive.open(tallinn, directory.resolve("26038.wda"), 4)) {
+            archive.addAll(hourly(0, 1, 1));
+            // One batch of more older observations than can wait, the waiting ones are merged at the 5th and 9th
+            archive.addAll(hourly(-9, 9, 1), true);
+            Assertions.assertEquals(9, archive.size());
+
+            archive.addAll(List.of(observation(-12), observation(-11), observation(-10)), true);
+            Assertions.assertEquals(9, archive.size());
+            archive.addAll(List.of(observation(-13), observation(-9)), true);
+            Assertions.assertEquals(13, archive.size());
+
+            // The observation that is already archived is skipped
+            archive.flush();
+            List<WeatherData> range = new ArrayList<>();
+            archive.forEachBetween(epochSecond(-13), epochSecond(0), range::add);
+            Assertions.assertEquals(14, range.size());
+            for (int i = 0; i < range.size(); i++) {
+                Assertions.assertEquals(BASEDATE.plusHours(i - 13), range.get(i).getTimestamp());
+            }
+        }
+    }
+
+    @Test
+    void testRewriteWritesNextGeneration() throws IOException {
+        Station tallinn = stationRegistry.fromWmoCode(26038);
+        Path file = directory.resolve("26038.wda");
+        try (StationArchive archive = StationArchive.open(tallinn, file)) {
+            archive.addAll(hourly(0, 10, 1));
+            WeatherHistory before = archive.getView();
+            // An older observation rewrites the archive into the next generation, the mapped file is not replaced
+            archive.addAll(List.of(observation(-1)));
+
+            Assertions.assertEquals(11, archive.size());
+            Assertions.assertEquals(10, before.size());
+            Assertions.assertEquals(epochSecond(0), before.getEpochSecond(0));
+            Assertions.assertFalse(Files.exists(file));
+            Assertions.assertTrue(Files.exists(directory.resolve("26038.wda.1")));
+        }
+
+        // An older generation that could not be deleted, like a file that was still mapped on Windows
+        Files.copy(directory.resolve("26038.wda.1"), file);
+        try (StationArchive archive = StationArchive.open(tallinn, file)) {
+            Assertions.assertEquals(11, archive.size());
+            archive.addAll(List.of(observation(-2)));
+            Assertions.assertEquals(12, archive.size());
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            Assertions.assertEquals(List.of(directory.resolve("26038.wda.2")), files.toList());
+        }
+    }
+
+    @Test
+    void testCompact() throws IOException {
+        Station tallinn = stationRegistry.fromWmoCode(26038);
+        LocalDateTime midnight = BASEDATE.truncatedTo(ChronoUnit.DAYS);
+        List<WeatherData> weatherReports = new ArrayList<>();
+        for (int hour = 0; hour < 72; hour++) {
+            weatherReports.add(new WeatherData("Tallinn-Harku", 26038, -2.5, 4.5, "Light snow", Phenomenon.SNOW,
+                    midnight.plusHours(hour)));
+        }
+
+        try (StationArchive archive = StationArchive.open(tallinn, directory.resolve("26038.wda"))) {
+            archive.addAll(weatherReports);
+            long secondDayEnd = StationTimeSeries.toEpochSecond(midnight.plusDays(2));
+
+            Assertions.assertEquals(46, archive.compact(Long.MIN_VALUE, secondDayEnd, ChronoUnit.DAYS));
+            Assertions.assertEquals(0, archive.compact(Long.MIN_VALUE, secondDayEnd, ChronoUnit.DAYS));
+
+            // The observation at noon is kept of the first 2 days, the last day is not changed
+            Assertions.assertEquals(26, archive.size());
+            List<WeatherData> kept = new ArrayList<>();
+            archive.forEachBetween(0, secondDayEnd, kept::add);
+            Assertions.assertEquals(List.of(midnight.plusHours(12), midnight.plusHours(36), midnight.plusHours(48)),
+                    kept.stream().map(WeatherData::getTimestamp).toList());
+        }
+    }
+
+    @Test
+    void testNotArchiveFile() throws IOException {
+        Path file = Files.writeString(directory.resolve("26038.wda"), "not an archive");
+
+        Assertions.assertThrows(IOException.class,
+                () -> StationArchive.open(stationRegistry.fromWmoCode(26038), file));
+    }
+
+    @Test
+    void testDatedFeeAfterRestart() throws Exception {
+        importWeatherService.saveWeatherData(hourly(-48, 48, 1));
+
+        // The in-memory database is empty after a restart, the archive files are opened again
+        weatherArchive.close();
+        weatherArchive.open();
+        weatherRepository.deleteAll();
+        weatherCache.reload();
+
+        Station tallinn = stationRegistry.fromWmoCode(26038);
+        Assertions.assertEquals(BASEDATE.minusHours(10),
+                weatherService.findClosestWeatherData(tallinn, BASEDATE.minusHours(10)).getTimestamp());
+        Assertions.assertEquals(BASEDATE.minusHours(1), weatherCache.getSnapshot().get(tallinn).getTimestamp());
+        // Base fee 3.50 €, air temperature fee 0.50 € and snow fee 1.00 €
+        Assertions.assertEquals("5.00 €", getMessage(mockMvc.perform(get("/delivery")
+                .param("station", TALLINN).param("vehicle", SCOOTER)
+                .param("date", BASEDATE.minusHours(10).toString())).andReturn()));
+    }
+
+    private static List<WeatherData> hourly(int from, int hours, int step) {
+        List<WeatherData> weatherReports = new ArrayList<>();
+        for (int hour = from; hour < from + hours * step; hour += step) {
+            weatherReports.add(observation(hour));
+        }
+        return weatherReports;
+    }
+
+    private static WeatherData observation(int hour) {
+        return new WeatherData("Tallinn-Harku", 26038, -2.5, 4.5, "Light snow", Phenomenon.SNOW,
+                BASEDATE.plusHours(hour));
+    }
+
+    private static long epochSecond(int hour) {
+        return StationTimeSeries.toEpochSecond(BASEDATE.plusHours(hour));
+    }
+}
@@ -1,6 +1,8 @@
 package delivery.backend.controllers;
 
+import com.jayway.jsonpath.JsonPath;
 import delivery.backend.DeliveryApplicationTestBase;
+import delivery.backend.entities.WeatherData;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 import org.springframework.http.MediaType;
@@ -8,8 +10,13 @@ import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 
 
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
+import java.util.List;
 
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 class DeliveryControllerTest extends DeliveryApplicationTestBase {
@@ -26,7 +33,7 @@ class DeliveryControllerTest extends DeliveryApplicationTestBase {
                 .andExpect(status().isOk())
                 .andReturn();
 
-        Assertions.assertEquals(WEATHERDATANOTFOUNDERROR, resTallinn.getResponse().getContentAsString());
+        Assertions.assertEquals(WEATHERDATANOTFOUNDERROR, getMessage(resTallinn));
     }
 
     @Test
@@ -45,7 +52,7 @@ class DeliveryControllerTest extends DeliveryApplicationTestBase {
                 .andExpect(status().isOk())
                 .andReturn();
 
-        Assertions.assertEquals("4.0 €", resTallinnBike.getResponse().getContentAsString());
+        Assertions.assertEquals("4.00 €", getMessage(resTallinnBike));
     }
 
     @Test
@@ -60,7 +67,7 @@ class DeliveryControllerTest extends DeliveryApplicationTestBase {
                 .andExpect(status().isOk())
                 .andReturn();
 
-        Assertions.assertEquals(STATIONNOTFOUNDERROR, resTallinn.getResponse().getContentAsString());
+        Assertions.assertEquals(STATIONNOTFOUNDERROR, getMessage(resTallinn));
     }
 
     @Test
@@ -76,7 +83,7 @@ class DeliveryControllerTest extends DeliveryApplicationTestBase {
                 .andExpect(status().isOk())
                 .andReturn();
 
-        Assertions.assertEquals("4.0 €", resTallinn.getResponse().getContentAsString());
+        Assertions.assertEquals("4.00 €", getMessage(resTallinn));
 
         MvcResult resTartu = mockMvc.perform(MockMvcRequestBuilders
                         .get("/delivery")
@@ -87,7 +94,7 @@ class DeliveryControllerTest extends DeliveryApplicationTestBase {
                 .andExpect(status().isOk())
                 .andReturn();
 
-        Assertions.assertEquals("3.5 €", resTartu.getResponse().getContentAsString());
+        Assertions.assertEquals("3.50 €", getMessage(resTartu));
 
         MvcResult resParnu = mockMvc.perform(MockMvcRequestBuilders
                         .get("/delivery")
@@ -98,7 +105,7 @@ class DeliveryControllerTest extends DeliveryApplicationTestBase {
                 .andExpect(status().isOk())
                 .andReturn();
 
-        Assertions.assertEquals("3.0 €", resParnu.getResponse().getContentAsString());
+        Assertions.assertEquals("3.00 €", getMessage(resParnu));
     }
 
     @Test
@@ -116,7 +123,7 @@ class DeliveryControllerTest extends DeliveryApplicationTestBase {
                 .andExpect(status().isOk())
                 .andReturn();
 
-        Assertions.assertEquals("4.0 €", resTallinnBike.getResponse().getContentAsString());
+        Assertions.assertEquals("4.00 €", getMessage(resTallinnBike));
 
         // Tartu - wind between 10m/s and 20m/s and snow
         MvcResult resTartuBike = mockMvc.perform(MockMvcRequestBuilders
@@ -128,7 +135,7 @@ class DeliveryControllerTest extends DeliveryApplicationTestBase {
                 .andExpect(status().isOk())
                 .andReturn();
 
-        Assertions.assertEquals("4.0 €", resTartuBike.getResponse().getContentAsString());
+        Assertions.assertEquals("4.00 €", getMessage(resTartuBike));
 
         // Pärnu - -20'C
         MvcResult resParnuScooter = mockMvc.perform(MockMvcRequestBuilders
@@ -140,7 +147,7 @@ class DeliveryControllerTest extends DeliveryApplicationTestBase {
                 .andExpect(status().isOk())
                 .andReturn();
 
-        Assertions.assertEquals("3.5 €", resParnuScooter.getResponse().getContentAsString());
+        Assertions.assertEquals("3.50 €", getMessage(resParnuScooter));
     }
 
     @Test
@@ -158,7 +165,7 @@ class DeliveryControllerTest extends DeliveryApplicationTestBase {
                 .andExpect(status().isOk())
                 .andReturn();
 
-        Assertions.assertEquals(FORBIDDENERROR, resTallinnScooter.getResponse().getContentAsString());
+        Assertions.assertEquals(FORBIDDENERROR, getMessage(resTallinnScooter));
 
 
         // Tartu - glaze and hail
@@ -171,7 +178,7 @@ class DeliveryControllerTest extends DeliveryApplicationTestBase {
                 .andExpect(status().isOk())
                 .andReturn();
 
-        Assertions.assertEquals(FORBIDDENERROR, resTartuScooter.getResponse().getContentAsString());
+        Assertions.assertEquals(FORBIDDENERROR, getMessage(resTartuScooter));
 
         // Pärnu - wind speed > 20m/s
         MvcResult resParnuBike = mockMvc.perform(MockMvcRequestBuilders
@@ -183,7 +190,7 @@ class DeliveryControllerTest extends DeliveryApplicationTestBase {
                 .andExpect(status().isOk())
                 .andReturn();
 
-        Assertions.assertEquals(FORBIDDENERROR, resParnuBike.getResponse().getContentAsString());
+        Assertions.assertEquals(FORBIDDENERROR, getMessage(resParnuBike));
 
         // Tallinn - Thunder
         // Car can still make deliveries in bad weather
@@ -196,7 +203,7 @@ class DeliveryControllerTest extends DeliveryApplicationTestBase {
                 .andExpect(status().isOk())
                 .andReturn();
 
-        Assertions.assertEquals("4.0 €", resTallinnCar.getResponse().getContentAsString());
+        Assertions.assertEquals("4.00 €", getMessage(resTallinnCar));
     }
 
     @Test
@@ -215,7 +222,7 @@ class DeliveryControllerTest extends DeliveryApplicationTestBase {
                 .andExpect(status().isOk())
                 .andReturn();
 
-        Assertions.assertEquals("3.5 €", resTallinnBike.getResponse().getContentAsString());
+        Assertions.assertEquals("3.50 €", getMessage(resTallinnBike));
 
         // Chosen date is 29/06/2023 16:16
         // Closest data should be 30/06/2023 15:15:00 - Snow and -2'C
@@ -228,7 +235,7 @@ class DeliveryControllerTest extends DeliveryApplicationTestBase {
                 .andExpect(status().isOk())
                 .andReturn();
 
-        Assertions.assertEquals("4.5 €", resTallinnBike.getResponse().getContentAsString());
+        Assertions.assertEquals("4.50 €", getMessage(resTallinnBike));
 
         // Chosen date is 15/07/2023 11:30
         // Closest data should be 15/07/2023 11:15:00 - Thunder
@@ -241,7 +248,7 @@ class DeliveryControllerTest extends DeliveryApplicationTestBase {
                 .andExpect(status().isOk())
                 .andReturn();
 
-        Assertions.assertEquals(FORBIDDENERROR, resTallinnBike.getResponse().getContentAsString());
+        Assertions.assertEquals(FORBIDDENERROR, getMessage(resTallinnBike));
 
         // Chosen date is 15/07/2023 11:45
         // Closest data should be 15/07/2023 12:15:00 - Wind speed is 15 m/s
@@ -254,7 +261,7 @@ class DeliveryControllerTest extends DeliveryApplicationTestBase {
                 .andExpect(status().isOk())
                 .andReturn();
 
-        Assertions.assertEquals("3.5 €", resTallinnBike.getResponse().getContentAsString());
+        Assertions.assertEquals("3.50 €", getMessage(resTallinnBike));
 
         // Chosen date is 31/07/2023 12:29
         // Closest data should be 30/07/2023 15:15:00 - Air Temperature is -2'C
@@ -267,7 +274,7 @@ class DeliveryControllerTest extends DeliveryApplicationTestBase {
                 .andExpect(status().isOk())
                 .andReturn();
 
-        Assertions.assertEquals("3.5 €", resTallinnBike.getResponse().getContentAsString());
+        Assertions.assertEquals("3.50 €", getMessage(resTallinnBike));
 
         // Chosen date is 14/08/2023 17:29
         // Closest data should be 15/08/2023 15:15:00 - Air Temperature is -15'C
@@ -280,7 +287,7 @@ class DeliveryControllerTest extends DeliveryApplicationTestBase {
                 .andExpect(status().isOk())
                 .andReturn();
 
-        Assertions.assertEquals("4.0 €", resTallinnBike.getResponse().getContentAsString());
+        Assertions.assertEquals("4.00 €", getMessage(resTallinnBike));
     }
 
     @Test
@@ -299,7 +306,7 @@ class DeliveryControllerTest extends DeliveryApplicationTestBase {
                 .andExpect(status().isOk())
                 .andReturn();
 
-        Assertions.assertEquals(DATESTOOFARAPARTERROR, resTallinnBike.getResponse().getContentAsString());
+        Assertions.assertEquals(DATESTOOFARAPARTERROR, getMessage(resTallinnBike));
 
         // Chosen date is always Tomorrow
         LocalDateTime chosenDate = LocalDateTime.now().plusDays(1);
@@ -312,6 +319,309 @@ class DeliveryControllerTest extends DeliveryApplicationTestBase {
                 .andExpect(status().isOk())
                 .andReturn();
 
-        Assertions.assertEquals(FUTUREDATEERROR, resTallinnBike.getResponse().getContentAsString());
+        Assertions.assertEquals(FUTUREDATEERROR, getMessage(resTallinnBike));
+    }
+
+    @Test
+    void testChooseDateAfterLatestWeatherData() throws Exception {
+
+        saveDifferentDatesDifferentWeather();
+
+        // Chosen date is 15/08/2023 15:15 - exactly the latest weather data, air temperature is -15'C
+        MvcResult resTallinnBike = mockMvc.perform(MockMvcRequestBuilders
+                        .get("/delivery")
+                        .param("station", TALLINN)
+                        .param("vehicle", BIKE)
+                        .param("date", "2023-08-15T15:15")
+                        .content(String.valueOf(MediaType.APPLICATION_FORM_URLENCODED)))
+                .andExpect(status().isOk())
+                .andReturn();
+
+        Assertions.assertEquals("4.00 €", getMessage(resTallinnBike));
+
+        // Chosen date is 20/08/2023 12:00
+        // Latest weather data is 15/08/2023 15:15:00, dates are more than 1 day apart
+        resTallinnBike = mockMvc.perform(MockMvcRequestBuilders
+                        .get("/delivery")
+                        .param("station", TALLINN)
+                        .param("vehicle", BIKE)
+                        .param("date", "2023-08-20T12:00")
+                        .content(String.valueOf(MediaType.APPLICATION_FORM_URLENCODED)))
+                .andExpect(status().isOk())
+                .andReturn();
+
+        Assertions.assertEquals(DATESTOOFARAPARTERROR, getMessage(resTallinnBike));
+    }
+
+    @Test
+    void testFeeBreakdown() throws Exception {
+
+        saveBadWeatherDataToDatabase();
+
+        // Tallinn - Rain and -2'C
+        mockMvc.perform(MockMvcRequestBuilders
+                        .get("/delivery")
+                        .param("station", TALLINN)
+                        .param("vehicle", BIKE)
+                        .param("breakdown", "true"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status").value("OK"))
+                .andExpect(jsonPath("$.feeCents").value(400))
+                .andExpect(jsonPath("$.message").value("4.00 €"))
+                .andExpect(jsonPath("$.breakdown.baseFeeCents").value(300))
+                .andExpect(jsonPath("$.breakdown.airTemperatureFeeCents").value(50))
+                .andExpect(jsonPath("$.breakdown.windSpeedFeeCents").value(0))
+                .andExpect(jsonPath("$.breakdown.phenomenonFeeCents").value(50));
+
+        // Without breakdown the parts of the fee are left out
+        mockMvc.perform(MockMvcRequestBuilders
+                        .get("/delivery")
+                        .param("station", TALLINN)
+                        .param("vehicle", BIKE))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.feeCents").value(400))
+                .andExpect(jsonPath("$.breakdown").doesNotExist());
+    }
+
+    @Test
+    void testFeeMatrix() throws Exception {
+
+        saveWorseWeatherDataToDatabase();
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/fees/matrix"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.TALLINN.CAR.message").value("4.00 €"))
+                .andExpect(jsonPath("$.TALLINN.SCOOTER.message").value(FORBIDDENERROR))
+                .andExpect(jsonPath("$.TARTU.BIKE.message").value(FORBIDDENERROR))
+                .andExpect(jsonPath("$.PARNU.CAR.message").value("3.00 €"))
+                .andExpect(jsonPath("$.PARNU.SCOOTER.message").value("3.50 €"))
+                .andExpect(jsonPath("$.PARNU.BIKE.message").value(FORBIDDENERROR))
+                .andExpect(jsonPath("$.PARNU.BIKE.status").value("FORBIDDEN"))
+                .andExpect(jsonPath("$.PARNU.SCOOTER.feeCents").value(350));
+    }
+
+    @Test
+    void testBatchFees() throws Exception {
+
+        saveDifferentDatesDifferentWeather();
+
+        String requests = "["
+                + "{\"station\": \"" + TALLINN + "\", \"vehicle\": \"" + CAR + "\"},"
+                + "{\"station\": \"" + TALLINN + "\", \"vehicle\": \"" + BIKE + "\", \"date\": \"2023-06-16T14:09\"},"
+                + "{\"station\": \"" + TALLINN + "\", \"vehicle\": \"" + BIKE + "\", \"date\": \"2023-07-15T11:30\"},"
+                + "{\"station\": \"" + TALLINN + "\", \"vehicle\": \"" + BIKE + "\", \"date\": \"2023-06-17T17:01\"},"
+                + "{\"station\": \"" + NARVA + "\", \"vehicle\": \"" + CAR + "\"},"
+                + "{\"station\": \"" + TARTU + "\", \"vehicle\": \"" + CAR + "\"}"
+                + "]";
+
+        mockMvc.perform(MockMvcRequestBuilders
+                        .post("/delivery/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(requests))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].fee").value("4.00 €"))
+                .andExpect(jsonPath("$[0].feeCents").value(400))
+                .andExpect(jsonPath("$[1].fee").value("3.50 €"))
+                .andExpect(jsonPath("$[2].error").value(FORBIDDENERROR))
+                .andExpect(jsonPath("$[3].error").value(DATESTOOFARAPARTERROR))
+                .andExpect(jsonPath("$[4].error").value(STATIONNOTFOUNDERROR))
+                .andExpect(jsonPath("$[5].error").value(WEATHERDATANOTFOUNDERROR));
+    }
+
+    @Test
+    void testRepriceOrders() throws Exception {
+
+        saveDifferentDatesDifferentWeather();
+
+        String orders = "{\"station\": " + TALLINN + ", \"vehicle\": \"bike\", \"timestamp\": \"2023-06-16T14:09\"}\n"
+                + "{\"station\": " + TALLINN + ", \"vehicle\": \"bike\", \"timestamp\": \"2023-07-15T11:30\"}\n"
+                + "not json\n";
+
+        MvcResult result = mockMvc.perform(MockMvcRequestBuilders
+                        .post("/delivery/reprice")
+                        .contentType(MediaType.APPLICATION_NDJSON)
+                        .content(orders))
+                .andExpect(status().isOk())
+                .andReturn();
+
+        String[] pricedOrders = result.getResponse().getContentAsString().split("\n");
+
+        Assertions.assertEquals(4, pricedOrders.length);
+        Assertions.assertTrue(pricedOrders[0].contains("\"fee\":\"3.50 €\""));
+        Assertions.assertTrue(pricedOrders[1].contains("\"error\":\"" + FORBIDDENERROR + "\""));
+        Assertions.assertTrue(pricedOrders[2].contains("\"error\""));
+        // The last line is the summary of the run
+        Assertions.assertEquals(3, (Integer) JsonPath.read(pricedOrders[3], "$.summary.rows"));
+        Assertions.assertEquals(2, (Integer) JsonPath.read(pricedOrders[3], "$.summary.errors"));
+    }
+
+    @Test
+    void testConditionalRequestForLatestFee() throws Exception {
+
+        saveGoodWeatherDataToDatabase();
+
+        MvcResult first = mockMvc.perform(MockMvcRequestBuilders
+                        .get("/delivery")
+                        .param("station", TALLINN)
+                        .param("vehicle", CAR))
+                .andExpect(status().isOk())
+                .andReturn();
+
+        String eTag = first.getResponse().getHeader("ETag");
+        String cacheControl = first.getResponse().getHeader("Cache-Control");
+        Assertions.assertNotNull(eTag);
+        // The fee can change between imports, so it is revalidated on every use
+        Assertions.assertEquals("no-cache, public", cacheControl);
+
+        mockMvc.perform(MockMvcRequestBuilders
+                        .get("/delivery")
+                        .param("station", TALLINN)
+                        .param("vehicle", CAR)
+                        .header("If-None-Match", eTag))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+
+        // Other vehicle types and the fee breakdown have their own ETags
+        mockMvc.perform(MockMvcRequestBuilders
+                        .get("/delivery")
+                        .param("station", TALLINN)
+                        .param("vehicle", BIKE)
+                        .header("If-None-Match", eTag))
+                .andExpect(status().isOk());
+        mockMvc.perform(MockMvcRequestBuilders
+                        .get("/delivery")
+                        .param("station", TALLINN)
+                        .param("vehicle", CAR)
+                        .param("breakdown", "true")
+                        .header("If-None-Match", eTag))
+                .andExpect(status().isOk());
+
+        // A reload between imports (new fee rules, backfill or retention) is a new snapshot version
+        weatherCache.reload();
+        mockMvc.perform(MockMvcRequestBuilders
+                        .get("/delivery")
+                        .param("station", TALLINN)
+                        .param("vehicle", CAR)
+                        .header("If-None-Match", eTag))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Cache-Control", "no-cache, public"));
+
+        // New weather data is a new snapshot version
+        weatherRepository.deleteAll();
+        saveWorseWeatherDataToDatabase();
+
+        MvcResult changed = mockMvc.perform(MockMvcRequestBuilders
+                        .get("/delivery")
+                        .param("station", TALLINN)
+                        .param("vehicle", CAR)
+                        .header("If-None-Match", eTag))
+                .andExpect(status().isOk())
+                .andReturn();
+
+        Assertions.assertNotEquals(eTag, changed.getResponse().getHeader("ETag"));
+    }
+
+    @Test
+    void testImportChangesETagOfLatestFee() throws Exception {
+
+        saveGoodWeatherDataToDatabase();
+
+        MvcResult first = mockMvc.perform(MockMvcRequestBuilders
+                        .get("/delivery")
+                        .param("station", TALLINN)
+                        .param("vehicle", BIKE))
+                .andExpect(status().isOk())
+                .andReturn();
+        String eTag = first.getResponse().getHeader("ETag");
+        Assertions.assertEquals("3.00 €", getMessage(first));
+
+        mockMvc.perform(MockMvcRequestBuilders
+                        .get("/delivery")
+                        .param("station", TALLINN)
+                        .param("vehicle", BIKE)
+                        .header("If-None-Match", eTag))
+                .andExpect(status().isNotModified());
+
+        // A new import publishes a new snapshot version
+        importWeatherService.saveWeatherData(List.of(new WeatherData("Tallinn-Harku", 26038,
+                -5.0, 2.0, "Light snow shower", BASEDATE.plusHours(1))));
+
+        MvcResult changed = mockMvc.perform(MockMvcRequestBuilders
+                        .get("/delivery")
+                        .param("station", TALLINN)
+                        .param("vehicle", BIKE)
+                        .header("If-None-Match", eTag))
+                .andExpect(status().isOk())
+                .andReturn();
+        String newETag = changed.getResponse().getHeader("ETag");
+        Assertions.assertNotEquals(eTag, newETag);
+        Assertions.assertEquals("4.50 €", getMessage(changed));
+
+        mockMvc.perform(MockMvcRequestBuilders
+                        .get("/delivery")
+                        .param("station", TALLINN)
+                        .param("vehicle", BIKE)
+                        .header("If-None-Match", newETag))
+                .andExpect(status().isNotModified());
+    }
+
+    @Test
+    void testDatedFeeIsNotCached() throws Exception {
+
+        saveDifferentDatesDifferentWeather();
+
+        mockMvc.perform(MockMvcRequestBuilders
+                        .get("/delivery")
+                        .param("station", TALLINN)
+                        .param("vehicle", BIKE)
+                        .param("date", "2023-06-16T14:09"))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist("ETag"));
+    }
+
+    @Test
+    void testFeeHistory() throws Exception {
+
+        saveDifferentDatesDifferentWeather();
+
+        MvcResult result = mockMvc.perform(MockMvcRequestBuilders
+                        .get("/delivery/history")
+                        .param("station", TALLINN)
+                        .param("vehicle", BIKE)
+                        .param("from", "2023-06-30T00:00")
+                        .param("to", "2023-07-30T15:15"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON))
+                .andReturn();
+
+        String[] rows = result.getResponse().getContentAsString(StandardCharsets.UTF_8).split("\n");
+
+        // Observations of 15.06 and 15.08 are outside the range, the end of the range is inclusive
+        Assertions.assertEquals(4, rows.length);
+        Assertions.assertTrue(rows[0].contains("\"timestamp\":\"2023-06-30T15:15:00\""), rows[0]);
+        Assertions.assertTrue(rows[0].contains("\"fee\":\"4.50 €\""), rows[0]);
+        Assertions.assertTrue(rows[1].contains("\"status\":\"FORBIDDEN\""), rows[1]);
+        Assertions.assertTrue(rows[1].contains("\"error\":\"" + FORBIDDENERROR + "\""), rows[1]);
+        Assertions.assertTrue(rows[2].contains("\"feeCents\":350"), rows[2]);
+        Assertions.assertTrue(rows[3].contains("\"timestamp\":\"2023-07-30T15:15:00\""), rows[3]);
+    }
+
+    @Test
+    void testFeeHistoryErrors() throws Exception {
+
+        mockMvc.perform(MockMvcRequestBuilders
+                        .get("/delivery/history")
+                        .param("station", NARVA)
+                        .param("vehicle", BIKE)
+                        .param("from", "2023-06-30T00:00"))
+                .andExpect(status().isNotFound());
+
+        mockMvc.perform(MockMvcRequestBuilders
+                        .get("/delivery/history")
+                        .param("station", TALLINN)
+                        .param("vehicle", BIKE)
+                        .param("from", "2023-07-30T00:00")
+                        .param("to", "2023-06-30T00:00"))
+                .andExpect(status().isBadRequest());
     }
 }
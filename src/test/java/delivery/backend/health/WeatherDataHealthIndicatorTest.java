@@ -0,0 +1,35 @@
+package delivery.backend.health;
+
+import delivery.backend.DeliveryApplicationTestBase;
+import org.junit.jupiter.api.Test;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class WeatherDataHealthIndicatorTest extends DeliveryApplicationTestBase {
+
+    @Test
+    void testNotReadyWithoutWeatherData() throws Exception {
+        mockMvc.perform(get("/actuator/health/readiness"))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(jsonPath("$.status").value("OUT_OF_SERVICE"))
+                .andExpect(jsonPath("$.components.weatherData.details.stationsWithWeatherData").value(0));
+
+        // The application is alive, it only waits for weather data
+        mockMvc.perform(get("/actuator/health/liveness"))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void testReadyAfterImport() throws Exception {
+        WEATHERSERVER.serve("feeds/observations.xml");
+
+        importWeatherService.importWeatherData().join();
+
+        mockMvc.perform(get("/actuator/health/readiness"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status").value("UP"))
+                .andExpect(jsonPath("$.components.weatherData.details.stationsWithWeatherData").value(3));
+    }
+}
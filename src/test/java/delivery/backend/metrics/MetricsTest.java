@@ -0,0 +1,114 @@
+package delivery.backend.metrics;
+
+import delivery.backend.DeliveryApplicationTestBase;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+
+// Tests use a simple meter registry unless observability is configured, this enables the Prometheus registry
+@AutoConfigureObservability
+class MetricsTest extends DeliveryApplicationTestBase {
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Test
+    void testFeeMetrics() throws Exception {
+        saveWorseWeatherDataToDatabase();
+        long tallinnScooter = requestCount("TALLINN", "scooter", "false");
+        long tallinnScooterDated = requestCount("TALLINN", "scooter", "true");
+        long unknownStation = requestCount("unknown", "unknown", "false");
+        double forbidden = resultCount("FORBIDDEN");
+        double stationNotFound = resultCount("STATION_NOT_FOUND");
+
+        // Forbidden because of thunder in Tallinn
+        mockMvc.perform(get("/delivery").param("station", TALLINN).param("vehicle", SCOOTER));
+        mockMvc.perform(get("/delivery").param("station", TALLINN).param("vehicle", SCOOTER)
+                .param("date", "2023-01-01T12:00"));
+        mockMvc.perform(get("/delivery").param("station", NARVA).param("vehicle", CAR));
+
+        Assertions.assertEquals(tallinnScooter + 1, requestCount("TALLINN", "scooter", "false"));
+        Assertions.assertEquals(tallinnScooterDated + 1, requestCount("TALLINN", "scooter", "true"));
+        Assertions.assertEquals(unknownStation + 1, requestCount("unknown", "unknown", "false"));
+        Assertions.assertEquals(forbidden + 1, resultCount("FORBIDDEN"));
+        Assertions.assertEquals(stationNotFound + 1, resultCount("STATION_NOT_FOUND"));
+    }
+
+    @Test
+    void testImportMetrics() {
+        long imports = importCount("success");
+        double newRows = meterRegistry.get("weather.import.rows").tag("result", "new").counter().count();
+        double duplicateRows = meterRegistry.get("weather.import.rows").tag("result", "duplicate").counter().count();
+        double tableRows = meterRegistry.get("weather.table.rows").gauge().value();
+
+        WEATHERSERVER.serve("feeds/observations.xml");
+        importWeatherService.importWeatherData().join();
+        // The same observations again with a new ETag
+        WEATHERSERVER.serve("feeds/observations.xml");
+        importWeatherService.importWeatherData().join();
+
+        Assertions.assertEquals(imports + 2, importCount("success"));
+        Assertions.assertTrue(meterRegistry.get("weather.import.feed.size").summary().max() > 1000);
+        Assertions.assertEquals(newRows + 3,
+                meterRegistry.get("weather.import.rows").tag("result", "new").counter().count());
+        Assertions.assertEquals(duplicateRows + 3,
+                meterRegistry.get("weather.import.rows").tag("result", "duplicate").counter().count());
+        Assertions.assertEquals(tableRows + 3, meterRegistry.get("weather.table.rows").gauge().value());
+        Assertions.assertTrue(meterRegistry.get("weather.data.age").tag("station", "TARTU").gauge().value() > 0);
+    }
+
+    @Test
+    void testImportOutcomes() {
+        long notModified = importCount("not_modified");
+        long failures = importCount("failure");
+        long timeouts = importCount("timeout");
+
+        WEATHERSERVER.serve("feeds/observations.xml");
+        importWeatherService.importWeatherData().join();
+        importWeatherService.importWeatherData().join();
+        Assertions.assertEquals(notModified + 1, importCount("not_modified"));
+
+        // The server answers with 503 when no feed is served
+        WEATHERSERVER.reset();
+        importWeatherService.importWeatherData().join();
+        Assertions.assertEquals(failures + 1, importCount("failure"));
+
+        WEATHERSERVER.serve("feeds/observations.xml");
+        WEATHERSERVER.delay(3000);
+        importWeatherService.importWeatherData().join();
+        Assertions.assertEquals(timeouts + 1, importCount("timeout"));
+    }
+
+    @Test
+    void testPrometheusEndpoint() throws Exception {
+        saveGoodWeatherDataToDatabase();
+        mockMvc.perform(get("/delivery").param("station", TARTU).param("vehicle", BIKE));
+
+        String scrape = mockMvc.perform(get("/actuator/prometheus")).andReturn().getResponse().getContentAsString();
+
+        Assertions.assertTrue(scrape.contains(
+                "delivery_fee_requests_seconds_count{dated=\"false\",station=\"TARTU\",vehicle=\"bike\",}"), scrape);
+        Assertions.assertTrue(scrape.contains("delivery_fee_results_total{status=\"OK\",}"));
+        Assertions.assertTrue(scrape.contains("weather_data_age_seconds{station=\"PARNU\",}"));
+        Assertions.assertTrue(scrape.contains("weather_table_rows "));
+        Assertions.assertTrue(scrape.contains("weather_import_seconds_count{outcome=\"timeout\",}"));
+    }
+
+    private long requestCount(String station, String vehicle, String dated) {
+        return meterRegistry.get("delivery.fee.requests")
+                .tag("station", station).tag("vehicle", vehicle).tag("dated", dated)
+                .timer().count();
+    }
+
+    private long importCount(String outcome) {
+        return meterRegistry.get("weather.import").tag("outcome", outcome).timer().count();
+    }
+
+    private double resultCount(String status) {
+        return meterRegistry.get("delivery.fee.results").tag("status", status).counter().count();
+    }
+}
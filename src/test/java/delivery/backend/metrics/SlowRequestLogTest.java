@@ -0,0 +1,38 @@
+package delivery.backend.metrics;
+
+import delivery.backend.DeliveryApplicationTestBase;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.context.TestPropertySource;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Every request is slow, so the ring buffer of 2 requests is overwritten
+@TestPropertySource(properties = {"delivery.slow-requests.threshold=0ms", "delivery.slow-requests.capacity=2"})
+class SlowRequestLogTest extends DeliveryApplicationTestBase {
+
+    @Test
+    void testLatestSlowRequestsAreKept() throws Exception {
+        saveGoodWeatherDataToDatabase();
+
+        mockMvc.perform(get("/delivery").param("station", TALLINN).param("vehicle", CAR));
+        mockMvc.perform(get("/delivery").param("station", NARVA).param("vehicle", CAR));
+        mockMvc.perform(get("/delivery").param("station", TARTU).param("vehicle", BIKE)
+                .param("date", "2023-01-01T12:00"));
+
+        mockMvc.perform(get("/actuator/slowrequests"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.thresholdMillis").value(0))
+                .andExpect(jsonPath("$.recorded").value(3))
+                .andExpect(jsonPath("$.requests.length()").value(2))
+                .andExpect(jsonPath("$.requests[0].sequence").value(2))
+                .andExpect(jsonPath("$.requests[0].station").value(TARTU))
+                .andExpect(jsonPath("$.requests[0].date").value("2023-01-01T12:00"))
+                .andExpect(jsonPath("$.requests[0].stageMicros.PARSE").isNumber())
+                .andExpect(jsonPath("$.requests[0].stageMicros.WEATHER_LOOKUP").isNumber())
+                .andExpect(jsonPath("$.requests[0].stageMicros.FEE_CALCULATION").isNumber())
+                .andExpect(jsonPath("$.requests[1].station").value(NARVA))
+                .andExpect(jsonPath("$.requests[1].status").value("STATION_NOT_FOUND"));
+    }
+}
@@ -0,0 +1,53 @@
+package delivery.backend.runners;
+
+import com.jayway.jsonpath.JsonPath;
+import delivery.backend.DeliveryApplicationTestBase;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.DefaultApplicationArguments;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+class RepricingRunnerTest extends DeliveryApplicationTestBase {
+
+    @Autowired
+    private RepricingRunner repricingRunner;
+
+    @TempDir
+    private Path directory;
+
+    @Test
+    void testRepriceOrderFile() throws Exception {
+        saveDifferentDatesDifferentWeather();
+        String orders = "{\"station\": " + TALLINN + ", \"vehicle\": \"bike\", \"timestamp\": \"2023-06-16T14:09\"}\n"
+                + "{\"station\": " + TALLINN + ", \"vehicle\": \"bike\", \"timestamp\": \"2023-07-15T11:30\"}\n";
+        Path input = Files.writeString(directory.resolve("orders.ndjson"), orders, StandardCharsets.UTF_8);
+
+        repricingRunner.run(new DefaultApplicationArguments("--reprice.input=" + input));
+
+        List<String> pricedOrders = Files.readAllLines(directory.resolve("orders.ndjson.priced"));
+        Assertions.assertEquals(3, pricedOrders.size());
+        Assertions.assertTrue(pricedOrders.get(0).contains("\"fee\":\"3.50 €\""));
+        Assertions.assertTrue(pricedOrders.get(1).contains("\"error\":\"" + FORBIDDENERROR + "\""));
+        Assertions.assertEquals(2, (Integer) JsonPath.read(pricedOrders.get(2), "$.summary.rows"));
+    }
+
+    @Test
+    void testRepricingNeedsWeatherHistory() throws Exception {
+        Path input = Files.writeString(directory.resolve("orders.ndjson"),
+                "{\"station\": " + TALLINN + ", \"vehicle\": \"bike\", \"timestamp\": \"2023-06-16T14:09\"}\n");
+        Path output = directory.resolve("priced.ndjson");
+
+        Assertions.assertThrows(IllegalStateException.class, () -> repricingRunner.run(
+                new DefaultApplicationArguments("--reprice.input=" + input, "--reprice.output=" + output)));
+        Assertions.assertFalse(Files.exists(output));
+
+        // Without the input option the application runs as usual
+        repricingRunner.run(new DefaultApplicationArguments());
+    }
+}
@@ -0,0 +1,91 @@
+package delivery.backend.services;
+
+import delivery.backend.DeliveryApplicationTestBase;
+import delivery.backend.cache.WeatherHistory;
+import delivery.backend.dto.FeeResult;
+import delivery.backend.entities.Delivery;
+import delivery.backend.stations.Station;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.lang.management.ManagementFactory;
+import java.time.LocalDateTime;
+
+class DeliveryServiceTest extends DeliveryApplicationTestBase {
+
+    private static final int WARMUPCALLS = 20_000;
+
+    private static final int MEASUREDCALLS = 100_000;
+
+    @Autowired
+    private DeliveryService deliveryService;
+
+    @Autowired
+    private WeatherService weatherService;
+
+    @Test
+    void testLatestFeeDoesNotAllocate() {
+        saveGoodWeatherDataToDatabase();
+        Delivery delivery = new Delivery(stationRegistry, TALLINN, CAR);
+
+        double bytesPerCall = measureAllocatedBytesPerCall(() -> deliveryService.calculateDeliveryFee(delivery,
+                null, false));
+
+        Assertions.assertEquals("4.00 €", deliveryService.calculateDeliveryFee(delivery, null, false).getMessage());
+        // The fee is read from the fee matrix, only escape analysis failures may allocate
+        Assertions.assertTrue(bytesPerCall < 16, "Allocated " + bytesPerCall + " bytes per call");
+    }
+
+    @Test
+    void testForbiddenFeeAllocatesOnlyTheWeatherLookup() {
+        saveDifferentDatesDifferentWeather();
+        Delivery delivery = new Delivery(stationRegistry, TALLINN, BIKE);
+        LocalDateTime date = LocalDateTime.of(2023, 7, 15, 11, 30);
+
+        double bytesPerCall = measureAllocatedBytesPerCall(() -> deliveryService.calculateDeliveryFee(delivery,
+                date, false));
+
+        Assertions.assertSame(FeeResult.FORBIDDEN, deliveryService.calculateDeliveryFee(delivery, date, false));
+        // No exception with a stack trace and no weather data is created, only the time conversion may allocate
+        Assertions.assertTrue(bytesPerCall < 1024, "Allocated " + bytesPerCall + " bytes per call");
+    }
+
+    @Test
+    void testWeatherLookupIsBounded() {
+        saveDifferentDatesDifferentWeather();
+        Station tallinn = stationRegistry.fromWmoCode(26038);
+        // One remembered time per station, every other lookup replaces the remembered one
+        WeatherLookup weatherLookup = new WeatherLookup(weatherService, stationRegistry.size(), 1);
+        LocalDateTime july = LocalDateTime.of(2023, 7, 15, 11, 30);
+        LocalDateTime june = LocalDateTime.of(2023, 6, 15, 11, 30);
+
+        for (int i = 0; i < 3; i++) {
+            WeatherHistory history = weatherLookup.getWeatherHistory(tallinn);
+            Assertions.assertEquals(weatherService.findClosestObservation(history, july),
+                    weatherLookup.findClosestObservation(tallinn, july));
+            Assertions.assertEquals(weatherService.findClosestObservation(history, june),
+                    weatherLookup.findClosestObservation(tallinn, june));
+        }
+        Assertions.assertEquals(WeatherHistory.NOTFOUND,
+                weatherLookup.findClosestObservation(tallinn, LocalDateTime.of(2020, 1, 1, 0, 0)));
+    }
+
+    private static double measureAllocatedBytesPerCall(Runnable call) {
+        com.sun.management.ThreadMXBean threadMXBean
+                = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+
+        for (int i = 0; i < WARMUPCALLS; i++) {
+            call.run();
+        }
+
+        long before = threadMXBean.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < MEASUREDCALLS; i++) {
+            call.run();
+        }
+        long after = threadMXBean.getThreadAllocatedBytes(threadId);
+
+        return (double) (after - before) / MEASUREDCALLS;
+    }
+}
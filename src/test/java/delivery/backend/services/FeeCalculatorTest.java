@@ -0,0 +1,91 @@
+package delivery.backend.services;
+
+import delivery.backend.DeliveryApplicationTestBase;
+import delivery.backend.enums.Vehicle;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+
+class FeeCalculatorTest extends DeliveryApplicationTestBase {
+
+    private static final Path RULES = createRulesFile();
+
+    @Autowired
+    private FeeCalculator feeCalculator;
+
+    @DynamicPropertySource
+    static void feeRulesProperties(DynamicPropertyRegistry registry) {
+        registry.add("fee.rules.location", () -> RULES.toUri().toString());
+    }
+
+    @AfterEach
+    void restoreRules() throws IOException {
+        copyDefaultRules(RULES);
+        touch(RULES);
+        feeCalculator.reloadFeeRulesIfChanged();
+    }
+
+    @Test
+    void testReloadChangedFeeRules() throws IOException {
+        saveGoodWeatherDataToDatabase();
+
+        Assertions.assertEquals("3.00 €", weatherCache.getSnapshot().getFeeMatrix()
+                .getResult(stationRegistry.fromWmoCode(26038), Vehicle.BIKE).getMessage());
+
+        String rules = Files.readString(RULES, StandardCharsets.UTF_8)
+                .replace("phenomenon.fee.NONE=0", "phenomenon.fee.NONE=1");
+        Files.writeString(RULES, rules, StandardCharsets.UTF_8);
+        touch(RULES);
+        feeCalculator.reloadFeeRulesIfChanged();
+
+        Assertions.assertEquals("4.00 €", weatherCache.getSnapshot().getFeeMatrix()
+                .getResult(stationRegistry.fromWmoCode(26038), Vehicle.BIKE).getMessage());
+    }
+
+    @Test
+    void testKeepOldFeeRulesWhenRuleTableIsBroken() throws IOException {
+        saveGoodWeatherDataToDatabase();
+
+        Files.writeString(RULES, "phenomenon.fee.NONE=free", StandardCharsets.UTF_8);
+        touch(RULES);
+        feeCalculator.reloadFeeRulesIfChanged();
+
+        Assertions.assertEquals("4.00 €", weatherCache.getSnapshot().getFeeMatrix()
+                .getResult(stationRegistry.fromWmoCode(26038), Vehicle.CAR).getMessage());
+    }
+
+    private static Path createRulesFile() {
+        try {
+            Path rules = Files.createTempFile("fee-rules", ".properties");
+            copyDefaultRules(rules);
+            return rules;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void copyDefaultRules(Path rules) throws IOException {
+        try (InputStream defaultRules = new ClassPathResource("fee-rules.properties").getInputStream()) {
+            Files.copy(defaultRules, rules, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    // File systems may only store the modification time in seconds
+    private static void touch(Path rules) throws IOException {
+        FileTime lastModified = Files.getLastModifiedTime(rules);
+        Files.setLastModifiedTime(rules, FileTime.fromMillis(lastModified.toMillis() + 2000));
+    }
+}
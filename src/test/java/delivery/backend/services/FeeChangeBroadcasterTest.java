@@ -0,0 +1,188 @@
+package delivery.backend.services;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import delivery.backend.DeliveryApplicationTestBase;
+import delivery.backend.entities.WeatherData;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+
+class FeeChangeBroadcasterTest extends DeliveryApplicationTestBase {
+
+    @Autowired
+    private FeeChangeBroadcaster feeChangeBroadcaster;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Test
+    void testFeeChangesAreSentAfterImport() throws Exception {
+        MvcResult stream = mockMvc.perform(get("/fees/stream"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        // The latest fees are sent at once
+        List<JsonNode> events = awaitEvents(stream, 1);
+        Assertions.assertEquals(9, events.get(0).get("fees").size());
+
+        importWeatherService.saveWeatherData(List.of(
+                new WeatherData("Tallinn-Harku", 26038, 20.0, 2.0, "Overcast", BASEDATE)));
+        importWeatherService.saveWeatherData(List.of(
+                new WeatherData("Tallinn-Harku", 26038, 20.0, 2.0, "Thunder", BASEDATE.plusHours(1))));
+
+        events = awaitEvents(stream, 3);
+        JsonNode allowed = findFee(events.get(1), 26038, "scooter");
+        Assertions.assertEquals("OK", allowed.get("status").asText());
+        Assertions.assertEquals("WEATHER_DATA_NOT_FOUND", allowed.get("previousStatus").asText());
+        Assertions.assertTrue(allowed.get("changed").asBoolean());
+
+        JsonNode forbidden = findFee(events.get(2), 26038, "scooter");
+        Assertions.assertEquals("FORBIDDEN", forbidden.get("status").asText());
+        Assertions.assertEquals("OK", forbidden.get("previousStatus").asText());
+        Assertions.assertTrue(forbidden.get("changed").asBoolean());
+
+        // Thunder does not forbid cars and the other stations had no new weather data
+        Assertions.assertFalse(findFee(events.get(2), 26038, "car").get("changed").asBoolean());
+        Assertions.assertFalse(findFee(events.get(2), 26242, "bike").get("changed").asBoolean());
+        Assertions.assertTrue(events.get(2).get("version").asLong() > events.get(1).get("version").asLong());
+        Assertions.assertTrue(feeChangeBroadcaster.getSubscribers() >= 1);
+    }
+
+    @Test
+    void testSlowSubscriberDoesNotStallOthers() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger fastEvents = new AtomicInteger();
+        AtomicBoolean fastClosed = new AtomicBoolean();
+        SseEmitter slow = new SseEmitter() {
+            @Override
+            public void send(SseEventBuilder builder) throws IOException {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                throw new IOException("Disconnected");
+            }
+        };
+        SseEmitter fast = new SseEmitter() {
+            @Override
+            public void send(SseEventBuilder builder) throws IOException {
+                if (fastClosed.get()) {
+                    throw new IOException("Disconnected");
+                }
+                fastEvents.incrementAndGet();
+            }
+        };
+        int subscribers = feeChangeBroadcaster.getSubscribers();
+
+        feeChangeBroadcaster.subscribe(slow);
+        feeChangeBroadcaster.subscribe(fast);
+        awaitCondition(() -> fastEvents.get() == 1);
+
+        // A reload is a new snapshot without an import, it is sent while the slow subscriber is still stuck
+        weatherCache.reload();
+        awaitCondition(() -> fastEvents.get() == 2);
+
+        // The slow subscriber is disconnected after the 1s send timeout of the tests
+        awaitCondition(() -> feeChangeBroadcaster.getSubscribers() == subscribers + 1);
+
+        release.countDown();
+        fastClosed.set(true);
+    }
+
+    @Test
+    void testSendThreadsAreBoundedWithManySubscribers() throws Exception {
+        int subscribers = 500;
+        AtomicInteger events = new AtomicInteger();
+        AtomicInteger sending = new AtomicInteger();
+        AtomicInteger maxSending = new AtomicInteger();
+        Set<Thread> sendThreads = ConcurrentHashMap.newKeySet();
+        AtomicBoolean closed = new AtomicBoolean();
+        for (int i = 0; i < subscribers; i++) {
+            feeChangeBroadcaster.subscribe(new SseEmitter() {
+                @Override
+                public void send(SseEventBuilder builder) throws IOException {
+                    if (closed.get()) {
+                        throw new IOException("Disconnected");
+                    }
+                    maxSending.accumulateAndGet(sending.incrementAndGet(), Math::max);
+                    sendThreads.add(Thread.currentThread());
+                    try {
+                        Thread.sleep(1);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    sending.decrementAndGet();
+                    events.incrementAndGet();
+                }
+            });
+        }
+        awaitCondition(() -> events.get() == subscribers);
+
+        weatherCache.reload();
+        awaitCondition(() -> events.get() == subscribers * 2);
+
+        // Every subscriber got both events from the 2 send threads of the tests
+        Assertions.assertTrue(maxSending.get() <= 2, "Sends at once: " + maxSending.get());
+        Assertions.assertTrue(sendThreads.size() <= 2, "Send threads: " + sendThreads.size());
+        Assertions.assertTrue(Thread.getAllStackTraces().keySet().stream()
+                .filter(thread -> thread.getName().equals("fee-stream-send")).count() <= 2);
+
+        closed.set(true);
+        weatherCache.reload();
+    }
+
+    private static void awaitCondition(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean()) {
+            Assertions.assertTrue(System.currentTimeMillis() < deadline, "Condition was not met in 5 s");
+            Thread.sleep(20);
+        }
+    }
+
+    // Waits until the stream has the number of events, events are sent by the broadcast thread
+    private List<JsonNode> awaitEvents(MvcResult stream, int count) throws Exception {
+        long deadline = System.currentTimeMillis() + 5000;
+        List<JsonNode> events = new ArrayList<>();
+        while (System.currentTimeMillis() < deadline) {
+            events.clear();
+            for (String line : stream.getResponse().getContentAsString(StandardCharsets.UTF_8).split("\n")) {
+                if (line.startsWith("data:")) {
+                    events.add(objectMapper.readTree(line.substring("data:".length())));
+                }
+            }
+            if (events.size() >= count) {
+                return events;
+            }
+            Thread.sleep(20);
+        }
+        Assertions.fail("Expected " + count + " events, got " + events.size());
+        return events;
+    }
+
+    private static JsonNode findFee(JsonNode event, int wmoCode, String vehicle) {
+        for (JsonNode fee : event.get("fees")) {
+            if (fee.get("wmoCode").asInt() == wmoCode && fee.get("vehicle").asText().equals(vehicle)) {
+                return fee;
+            }
+        }
+        throw new AssertionError("No fee of " + wmoCode + " " + vehicle);
+    }
+}
@@ -1,19 +1,33 @@
 package delivery.backend.services;
 
 import delivery.backend.DeliveryApplicationTestBase;
+import delivery.backend.dto.ImportResult;
 import delivery.backend.entities.WeatherData;
+import delivery.backend.enums.Phenomenon;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.util.ArrayList;
+import java.util.List;
 
 class ImportWeatherServiceTest extends DeliveryApplicationTestBase {
 
+    @Autowired
+    private MeterRegistry meterRegistry;
+
     @Test
     void testImportWeatherData() {
+        WEATHERSERVER.serve("feeds/observations.xml");
         Assertions.assertEquals(0, weatherRepository.findAll().size());
 
-        importWeatherService.importWeatherData();
+        ImportResult result = importWeatherService.importWeatherData().join();
 
+        Assertions.assertEquals(3, result.getRows());
         Assertions.assertEquals(3, weatherRepository.findAll().size());
+        Assertions.assertEquals("gzip", WEATHERSERVER.getLastAcceptEncoding());
 
         WeatherData weatherData = weatherRepository.findAllByWmoCode(26038).get(0);
 
@@ -21,7 +35,129 @@ class ImportWeatherServiceTest extends DeliveryApplicationTestBase {
         Assertions.assertNotNull(weatherData.getStationName());
         Assertions.assertNotNull(weatherData.getWmoCode());
         Assertions.assertNotNull(weatherData.getPhenomenon());
+        Assertions.assertNotNull(weatherData.getPhenomenonClass());
         Assertions.assertNotNull(weatherData.getTimestamp());
+        Assertions.assertEquals(Phenomenon.NONE, weatherData.getPhenomenonClass());
+    }
+
+    @Test
+    void testUnchangedFeedIsNotImportedAgain() {
+        WEATHERSERVER.serve("feeds/observations.xml");
+
+        Assertions.assertNotNull(importWeatherService.importWeatherData().join());
+        // The second request sends the ETag of the first feed and gets 304 Not Modified
+        Assertions.assertNull(importWeatherService.importWeatherData().join());
+
+        Assertions.assertEquals(2, WEATHERSERVER.getRequests());
+        Assertions.assertEquals(1, WEATHERSERVER.getNotModified());
+        Assertions.assertEquals(3, weatherRepository.findAll().size());
+    }
+
+    @Test
+    void testImportIsIdempotent() {
+        WEATHERSERVER.serve("feeds/observations.xml");
+        Assertions.assertEquals(3, importWeatherService.importWeatherData().join().getNewRows());
+
+        // The same observations with a new ETag are downloaded again but not saved again
+        WEATHERSERVER.serve("feeds/observations.xml");
+        ImportResult result = importWeatherService.importWeatherData().join();
+
+        Assertions.assertEquals(3, result.getRows());
+        Assertions.assertEquals(0, result.getNewRows());
+        Assertions.assertEquals(3, weatherRepository.findAll().size());
+        Assertions.assertEquals(1, weatherCache.getHistory(stationRegistry.fromWmoCode(26038)).size());
+    }
+
+    @Test
+    void testSaveSkipsSavedObservations() {
+        importWeatherService.saveWeatherData(List.of(
+                new WeatherData("Tallinn-Harku", 26038, 10.0, 2.0, "Light rain", BASEDATE)));
+
+        ImportResult result = importWeatherService.saveWeatherData(List.of(
+                new WeatherData("Tallinn-Harku", 26038, 11.0, 3.0, "Light rain", BASEDATE),
+                new WeatherData("Tallinn-Harku", 26038, 12.0, 4.0, "Light rain", BASEDATE.plusHours(1)),
+                new WeatherData("Tallinn-Harku", 26038, 13.0, 5.0, "Light rain", BASEDATE.plusHours(1)),
+                new WeatherData("Tartu-Tõravere", 26242, 10.0, 2.0, "Light rain", BASEDATE)));
+
+        Assertions.assertEquals(4, result.getRows());
+        Assertions.assertEquals(2, result.getNewRows());
+        Assertions.assertEquals(2, weatherRepository.findAllByWmoCode(26038).size());
+        Assertions.assertEquals(1, weatherRepository.findAllByWmoCode(26242).size());
+        // The first saved observation is kept
+        Assertions.assertEquals(10.0, weatherRepository.findAllByWmoCodeOrderByTimestampAsc(26038).get(0).getAirTemp());
+    }
+
+    @Test
+    void testMissingPhenomenonIsNotUnknown() {
+        double unknownPhenomena = unknownPhenomenonCount();
+
+        importWeatherService.saveWeatherData(List.of(
+                new WeatherData("Tallinn-Harku", 26038, 10.0, 2.0, null, BASEDATE),
+                new WeatherData("Tartu-Tõravere", 26242, 10.0, 2.0, "Volcanic ash", BASEDATE)));
+
+        Assertions.assertEquals(Phenomenon.NONE, weatherRepository.findAllByWmoCode(26038).get(0).getPhenomenonClass());
+        Assertions.assertEquals(unknownPhenomena + 1, unknownPhenomenonCount());
+    }
+
+    private double unknownPhenomenonCount() {
+        return meterRegistry.get("weather.phenomenon.unknown").counter().count();
+    }
+
+    @Test
+    void testDuplicateObservationIsRejectedByDatabase() {
+        weatherRepository.save(new WeatherData("Tallinn-Harku", 26038, 10.0, 2.0, "Light rain", BASEDATE));
+
+        Assertions.assertThrows(DataIntegrityViolationException.class, () -> weatherRepository.save(
+                new WeatherData("Tallinn-Harku", 26038, 11.0, 3.0, "Light rain", BASEDATE)));
+    }
+
+    @Test
+    void testFeedErrors() {
+        // The server answers with 503 when no feed is served
+        Assertions.assertNull(importWeatherService.importWeatherData().join());
+
+        WEATHERSERVER.serve("feeds/observations.xml");
+        WEATHERSERVER.delay(3000);
+        Assertions.assertNull(importWeatherService.importWeatherData().join());
+
+        Assertions.assertEquals(0, weatherRepository.findAll().size());
+    }
+
+    @Test
+    void testStalledFeedBodyTimesOut() {
+        // The headers come at once, but the rest of the body only after the 2s request timeout
+        WEATHERSERVER.serve("feeds/observations.xml");
+        WEATHERSERVER.stall(10000);
+
+        long start = System.nanoTime();
+        Assertions.assertNull(importWeatherService.importWeatherData().join());
+
+        Assertions.assertTrue(System.nanoTime() - start < 5_000_000_000L);
+        Assertions.assertEquals(0, weatherRepository.findAll().size());
+
+        // The feed was not imported, so it is downloaded again and not answered with 304
+        WEATHERSERVER.stall(0);
+        Assertions.assertEquals(3, importWeatherService.importWeatherData().join().getNewRows());
+    }
+
+    @Test
+    void testSaveImportCycleInOneBatch() {
+        List<WeatherData> weatherReports = new ArrayList<>();
+        for (int hour = 0; hour < 120; hour++) {
+            weatherReports.add(new WeatherData("Tallinn-Harku", 26038, 10.0, 2.0, "Light rain",
+                    BASEDATE.minusHours(hour)));
+        }
+
+        ImportResult result = importWeatherService.saveWeatherData(weatherReports);
+
+        Assertions.assertEquals(120, result.getRows());
+        Assertions.assertSame(result, importWeatherService.getLastImport());
+        Assertions.assertEquals(120, weatherRepository.findAllByWmoCode(26038).size());
+        Assertions.assertTrue(weatherReports.stream().allMatch(weatherData -> weatherData.getId() != null));
 
+        // Saved weather data is published to the cache after the transaction
+        Assertions.assertEquals(120, weatherCache.getHistory(stationRegistry.fromWmoCode(26038)).size());
+        Assertions.assertEquals(Phenomenon.RAIN, weatherCache.getSnapshot()
+                .get(stationRegistry.fromWmoCode(26038)).getPhenomenonClass());
     }
-}
\ No newline at end of file
+}
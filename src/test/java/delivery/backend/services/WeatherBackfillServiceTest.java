@@ -0,0 +1,125 @@
+package delivery.backend.services;
+
+import delivery.backend.DeliveryApplicationTestBase;
+import delivery.backend.dto.BackfillResult;
+import delivery.backend.dto.BackfillStatus;
+import delivery.backend.enums.BackfillState;
+import delivery.backend.stations.Station;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.test.context.TestPropertySource;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// A small batch size, so the archive is saved in many batches, and one thread, so the files are saved in order
+@TestPropertySource(properties = {"weather.backfill.batch-size=40", "weather.backfill.threads=1"})
+class WeatherBackfillServiceTest extends DeliveryApplicationTestBase {
+
+    private static final int HOURS = 48;
+
+    @Autowired
+    private WeatherBackfillService weatherBackfillService;
+
+    @TempDir
+    private Path archive;
+
+    @Test
+    void testBackfill() throws Exception {
+        writeArchive();
+
+        BackfillResult result = weatherBackfillService.backfill(archive);
+
+        // Every hour, the copy of the first hour and the broken file
+        Assertions.assertEquals(HOURS + 2, result.getFiles());
+        Assertions.assertEquals(1, result.getFailedFiles());
+        Assertions.assertEquals((HOURS + 1) * 3, result.getRows());
+        Assertions.assertEquals(HOURS * 3, result.getNewRows());
+        Assertions.assertTrue(result.getFilesPerSecond() > 0);
+        Assertions.assertTrue(result.getRowsPerSecond() > 0);
+
+        Assertions.assertEquals(HOURS * 3, weatherRepository.count());
+        Assertions.assertEquals(HOURS, weatherCache.getHistory(stationRegistry.fromWmoCode(26038)).size());
+        Assertions.assertEquals(BASEDATE.plusHours(HOURS - 1),
+                weatherCache.getSnapshot().get(stationRegistry.fromWmoCode(26038)).getTimestamp());
+    }
+
+    @Test
+    void testBackfillAgainSavesNothing() throws Exception {
+        writeArchive();
+        weatherBackfillService.backfill(archive);
+
+        BackfillResult result = weatherBackfillService.backfill(archive);
+
+        Assertions.assertEquals(0, result.getNewRows());
+        Assertions.assertEquals(HOURS * 3, weatherRepository.count());
+    }
+
+    @Test
+    void testBackfillRunsInBackground() throws Exception {
+        writeArchive();
+
+        BackfillStatus started = weatherBackfillService.startBackfill(archive);
+
+        Assertions.assertEquals(BackfillState.RUNNING, started.getState());
+        Assertions.assertNull(started.getResult());
+        long deadline = System.nanoTime() + 10_000_000_000L;
+        while (weatherBackfillService.getStatus().getState() == BackfillState.RUNNING && System.nanoTime() < deadline) {
+            Thread.sleep(20);
+        }
+
+        BackfillStatus status = weatherBackfillService.getStatus();
+        Assertions.assertEquals(started.getId(), status.getId());
+        Assertions.assertEquals(BackfillState.FINISHED, status.getState());
+        Assertions.assertEquals(HOURS * 3, status.getResult().getNewRows());
+        mockMvc.perform(get("/weather/backfill"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.state").value("FINISHED"))
+                .andExpect(jsonPath("$.result.newRows").value(HOURS * 3));
+    }
+
+    @Test
+    void testFailedBackfillKeepsSavedBatchesInCache() throws Exception {
+        writeArchive();
+        // The station name does not fit in the column, so saving the last batch fails
+        String feed = new ClassPathResource("feeds/observations.xml").getContentAsString(StandardCharsets.UTF_8);
+        Files.writeString(archive.resolve("zz-observations.xml"), feed.replace("Tallinn-Harku", "x".repeat(300))
+                .replace("timestamp=\"1693131973\"", "timestamp=\"" + (1693131973L + HOURS * 3600L) + "\""));
+
+        Assertions.assertThrows(DataIntegrityViolationException.class, () -> weatherBackfillService.backfill(archive));
+
+        Station tallinn = stationRegistry.fromWmoCode(26038);
+        Assertions.assertTrue(weatherRepository.count() > 0);
+        Assertions.assertEquals(weatherRepository.findAllByWmoCode(26038).size(),
+                weatherCache.getHistory(tallinn).size());
+    }
+
+    @Test
+    void testBackfillEndpointWithoutDirectory() throws Exception {
+        mockMvc.perform(post("/weather/backfill")).andExpect(status().isNotFound());
+    }
+
+    private void writeArchive() throws Exception {
+        String feed = new ClassPathResource("feeds/observations.xml").getContentAsString(StandardCharsets.UTF_8);
+        long timestamp = 1693131973L;
+
+        for (int hour = 0; hour < HOURS; hour++) {
+            Path month = Files.createDirectories(archive.resolve(hour < HOURS / 2 ? "2023-08" : "2023-09"));
+            String hourlyFeed = feed.replace("timestamp=\"" + timestamp + "\"",
+                    "timestamp=\"" + (timestamp + hour * 3600L) + "\"");
+            Files.writeString(month.resolve(String.format("observations-%03d.xml", hour)), hourlyFeed);
+        }
+        Files.writeString(archive.resolve("observations-copy.xml"), feed);
+        Files.writeString(archive.resolve("observations-broken.xml"), feed.substring(0, feed.length() / 2));
+    }
+}
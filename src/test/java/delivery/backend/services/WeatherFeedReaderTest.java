@@ -0,0 +1,168 @@
+package delivery.backend.services;
+
+import delivery.backend.constants.Constants;
+import delivery.backend.entities.WeatherData;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+import org.w3c.dom.Document;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.function.IntPredicate;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+class WeatherFeedReaderTest {
+
+    private static final IntPredicate CONFIGUREDSTATIONS = Set.of(26038, 26242, 41803)::contains;
+
+    private static final int BENCHMARKROUNDS = 20;
+
+    private final Logger logger = Logger.getLogger(WeatherFeedReaderTest.class.getName());
+
+    @Test
+    void testReadConfiguredStations() throws Exception {
+        List<WeatherData> weatherReports;
+        try (InputStream feed = new ClassPathResource("feeds/observations.xml").getInputStream()) {
+            weatherReports = new WeatherFeedReader(CONFIGUREDSTATIONS).read(feed);
+        }
+
+        Assertions.assertEquals(3, weatherReports.size());
+
+        WeatherData tallinn = weatherReports.get(0);
+        Assertions.assertEquals("Tallinn-Harku", tallinn.getStationName());
+        Assertions.assertEquals(26038, tallinn.getWmoCode());
+        Assertions.assertEquals(14.9f, tallinn.getAirTemp());
+        Assertions.assertEquals(3.1f, tallinn.getWindSpeed());
+        Assertions.assertEquals("Few clouds", tallinn.getPhenomenon());
+        Assertions.assertEquals(LocalDateTime.ofInstant(Instant.ofEpochSecond(1693131973L),
+                ZoneId.of("Europe/Tallinn")), tallinn.getTimestamp());
+
+        // Elements of the Tartu station are in reverse order
+        WeatherData tartu = weatherReports.get(1);
+        Assertions.assertEquals("Tartu-Tõravere", tartu.getStationName());
+        Assertions.assertEquals(-2.1f, tartu.getAirTemp());
+        Assertions.assertEquals(12.4f, tartu.getWindSpeed());
+        Assertions.assertEquals("Light snow shower", tartu.getPhenomenon());
+
+        // Pärnu has no wind speed measurement
+        WeatherData parnu = weatherReports.get(2);
+        Assertions.assertEquals(41803, parnu.getWmoCode());
+        Assertions.assertTrue(Double.isNaN(parnu.getWindSpeed()));
+    }
+
+    @Test
+    void testReadAllStations() throws Exception {
+        List<WeatherData> weatherReports;
+        try (InputStream feed = new ClassPathResource("feeds/observations.xml").getInputStream()) {
+            weatherReports = new WeatherFeedReader().read(feed);
+        }
+
+        // Kuressaare linn has no wmo code
+        Assertions.assertEquals(8, weatherReports.size());
+    }
+
+    @Test
+    void testMissingTimestamp() {
+        byte[] feed = "<observations><station><wmocode>26038</wmocode></station></observations>".getBytes();
+
+        Assertions.assertThrows(IllegalArgumentException.class,
+                () -> new WeatherFeedReader().read(new ByteArrayInputStream(feed)));
+    }
+
+    @Test
+    void testBenchmarkAgainstDom() throws Exception {
+        byte[] feed = new ClassPathResource("feeds/observations-large.xml").getContentAsByteArray();
+
+        List<WeatherData> streamed = new WeatherFeedReader(CONFIGUREDSTATIONS).read(new ByteArrayInputStream(feed));
+        List<WeatherData> parsed = readWithDom(feed, CONFIGUREDSTATIONS);
+
+        Assertions.assertEquals(3, streamed.size());
+        Assertions.assertEquals(parsed.size(), streamed.size());
+        for (int i = 0; i < parsed.size(); i++) {
+            Assertions.assertEquals(parsed.get(i).getWmoCode(), streamed.get(i).getWmoCode());
+            Assertions.assertEquals(parsed.get(i).getAirTemp(), streamed.get(i).getAirTemp());
+            Assertions.assertEquals(parsed.get(i).getWindSpeed(), streamed.get(i).getWindSpeed());
+            Assertions.assertEquals(parsed.get(i).getPhenomenon(), streamed.get(i).getPhenomenon());
+        }
+
+        com.sun.management.ThreadMXBean threadMXBean
+                = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+
+        long start = System.nanoTime();
+        long allocated = threadMXBean.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < BENCHMARKROUNDS; i++) {
+            new WeatherFeedReader(CONFIGUREDSTATIONS).read(new ByteArrayInputStream(feed));
+        }
+        long staxNanos = System.nanoTime() - start;
+        long staxBytes = threadMXBean.getThreadAllocatedBytes(threadId) - allocated;
+
+        start = System.nanoTime();
+        allocated = threadMXBean.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < BENCHMARKROUNDS; i++) {
+            readWithDom(feed, CONFIGUREDSTATIONS);
+        }
+        long domNanos = System.nanoTime() - start;
+        long domBytes = threadMXBean.getThreadAllocatedBytes(threadId) - allocated;
+
+        logger.log(Level.INFO, String.format("FEED BENCHMARK: %d kB feed, StAX %.1f ms %d kB, DOM %.1f ms %d kB",
+                feed.length / 1024, staxNanos / 1e6 / BENCHMARKROUNDS, staxBytes / 1024 / BENCHMARKROUNDS,
+                domNanos / 1e6 / BENCHMARKROUNDS, domBytes / 1024 / BENCHMARKROUNDS));
+
+        // The DOM tree of the whole feed is built before a single station is read
+        Assertions.assertTrue(staxBytes < domBytes, "StAX allocated " + staxBytes + " and DOM " + domBytes);
+    }
+
+    // The DOM import the WeatherFeedReader replaced, kept as the benchmark baseline
+    private static List<WeatherData> readWithDom(byte[] feed, IntPredicate stationFilter) throws Exception {
+        Document doc = DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(new ByteArrayInputStream(feed));
+
+        NodeList stationNodes = doc.getDocumentElement().getChildNodes();
+        long timestamp = Long.parseLong(doc.getDocumentElement().getAttribute("timestamp"));
+        List<WeatherData> weatherReports = new ArrayList<>();
+
+        for (int i = 0; i < stationNodes.getLength(); i++) {
+            if (!stationNodes.item(i).hasChildNodes()) {
+                continue;
+            }
+            WeatherData weatherData = new WeatherData();
+            weatherData.setTimestamp(LocalDateTime.ofInstant(Instant.ofEpochSecond(timestamp),
+                    ZoneId.of("Europe/Tallinn")));
+
+            NodeList stationData = stationNodes.item(i).getChildNodes();
+            for (int j = 0; j < stationData.getLength(); j++) {
+                Node dataPoint = stationData.item(j);
+                if (!Constants.IMPORTANTDATAKEYS.contains(dataPoint.getNodeName())) {
+                    continue;
+                }
+                String value = dataPoint.getTextContent();
+                switch (dataPoint.getNodeName()) {
+                    case "name" -> weatherData.setStationName(value);
+                    case "wmocode" -> weatherData.setWmoCode(value.isEmpty() ? null : Integer.parseInt(value));
+                    case "phenomenon" -> weatherData.setPhenomenon(value);
+                    case "airtemperature" -> weatherData.setAirTemp(value.isEmpty()
+                            ? Double.NaN : Float.parseFloat(value));
+                    case "windspeed" -> weatherData.setWindSpeed(value.isEmpty()
+                            ? Double.NaN : Float.parseFloat(value));
+                }
+            }
+
+            if (weatherData.getWmoCode() != null && stationFilter.test(weatherData.getWmoCode())) {
+                weatherReports.add(weatherData);
+            }
+        }
+        return weatherReports;
+    }
+}
@@ -0,0 +1,93 @@
+package delivery.backend.services;
+
+import delivery.backend.DeliveryApplicationTestBase;
+import delivery.backend.dto.CompactionResult;
+import delivery.backend.entities.WeatherData;
+import delivery.backend.stations.Station;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+
+class WeatherRetentionServiceTest extends DeliveryApplicationTestBase {
+
+    private static final int OLDDAYS = 3;
+
+    private static final int RECENTHOURS = 24;
+
+    @Autowired
+    private WeatherRetentionService weatherRetentionService;
+
+    @Autowired
+    private WeatherService weatherService;
+
+    private final LocalDateTime oldStart = LocalDateTime.now().minusDays(60).truncatedTo(ChronoUnit.DAYS);
+
+    @BeforeEach
+    void checkWholeHistory() {
+        // The database is emptied before every test, so earlier compactions do not apply
+        weatherRetentionService.recheckAll();
+    }
+
+    @Test
+    void testOldWeatherDataIsDownsampled() {
+        saveHourlyWeatherData();
+        Station tallinn = stationRegistry.fromWmoCode(26038);
+
+        CompactionResult result = weatherRetentionService.compactWeatherData(LocalDateTime.now().minusDays(30));
+
+        Assertions.assertEquals(OLDDAYS * 24, result.getCheckedRows());
+        Assertions.assertEquals(OLDDAYS * 23, result.getDeletedRows());
+        Assertions.assertEquals(OLDDAYS + RECENTHOURS, weatherRepository.count());
+        Assertions.assertEquals(OLDDAYS + RECENTHOURS, weatherCache.getHistory(tallinn).size());
+
+        // The observation at noon is kept for every day
+        List<WeatherData> kept = weatherRepository.findAllByWmoCodeOrderByTimestampAsc(26038);
+        for (int day = 0; day < OLDDAYS; day++) {
+            Assertions.assertEquals(oldStart.plusDays(day).plusHours(12), kept.get(day).getTimestamp());
+        }
+
+        // Dated fees of the downsampled days still find weather data within 1 day
+        Assertions.assertNotNull(weatherService.findClosestWeatherData(tallinn, oldStart.plusMinutes(1)));
+        Assertions.assertNotNull(weatherService.findClosestWeatherData(tallinn,
+                oldStart.plusDays(OLDDAYS).minusMinutes(1)));
+    }
+
+    @Test
+    void testCompactingAgainDeletesNothing() {
+        saveHourlyWeatherData();
+        weatherRetentionService.compactWeatherData(LocalDateTime.now().minusDays(30));
+
+        // Only the window expired since the last compaction is checked
+        CompactionResult result = weatherRetentionService.compactWeatherData(LocalDateTime.now().minusDays(30));
+
+        Assertions.assertEquals(0, result.getCheckedRows());
+        Assertions.assertEquals(0, result.getDeletedRows());
+
+        weatherRetentionService.recheckAll();
+        result = weatherRetentionService.compactWeatherData(LocalDateTime.now().minusDays(30));
+
+        Assertions.assertEquals(OLDDAYS, result.getCheckedRows());
+        Assertions.assertEquals(0, result.getDeletedRows());
+        Assertions.assertEquals(OLDDAYS + RECENTHOURS, weatherRepository.count());
+    }
+
+    private void saveHourlyWeatherData() {
+        List<WeatherData> weatherReports = new ArrayList<>();
+        for (int hour = 0; hour < OLDDAYS * 24; hour++) {
+            weatherReports.add(new WeatherData("Tallinn-Harku", 26038, 10.0, 2.0, "Light rain",
+                    oldStart.plusHours(hour)));
+        }
+        LocalDateTime recent = LocalDateTime.now().truncatedTo(ChronoUnit.HOURS);
+        for (int hour = 0; hour < RECENTHOURS; hour++) {
+            weatherReports.add(new WeatherData("Tallinn-Harku", 26038, 10.0, 2.0, "Light rain",
+                    recent.minusHours(hour)));
+        }
+        importWeatherService.saveWeatherData(weatherReports);
+    }
+}
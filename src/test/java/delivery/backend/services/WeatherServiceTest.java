@@ -0,0 +1,46 @@
+package delivery.backend.services;
+
+import delivery.backend.DeliveryApplicationTestBase;
+import delivery.backend.stations.Station;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.time.LocalDateTime;
+
+class WeatherServiceTest extends DeliveryApplicationTestBase {
+
+    @Autowired
+    private WeatherService weatherService;
+
+    @Test
+    void testClosestWeatherDataIsFoundFromDatabase() {
+        saveDifferentDatesDifferentWeather();
+        Station tallinn = stationRegistry.fromWmoCode(26038);
+
+        // The closer one of the observations before and after the chosen date
+        Assertions.assertEquals(LocalDateTime.of(2023, 7, 15, 11, 15),
+                weatherService.findClosestWeatherData(tallinn, LocalDateTime.of(2023, 7, 15, 11, 40)).getTimestamp());
+        Assertions.assertEquals(LocalDateTime.of(2023, 7, 15, 12, 15),
+                weatherService.findClosestWeatherData(tallinn, LocalDateTime.of(2023, 7, 15, 11, 50)).getTimestamp());
+        Assertions.assertEquals("Thunder",
+                weatherService.findClosestWeatherData(tallinn, LocalDateTime.of(2023, 7, 15, 11, 15)).getPhenomenon());
+
+        // Only before or only after the chosen date, within 1 day
+        Assertions.assertEquals(LocalDateTime.of(2023, 6, 15, 15, 15),
+                weatherService.findClosestWeatherData(tallinn, LocalDateTime.of(2023, 6, 14, 16, 0)).getTimestamp());
+        Assertions.assertEquals(LocalDateTime.of(2023, 8, 15, 15, 15),
+                weatherService.findClosestWeatherData(tallinn, LocalDateTime.of(2023, 8, 16, 15, 15)).getTimestamp());
+    }
+
+    @Test
+    void testClosestWeatherDataMoreThanDayApartIsNotFound() {
+        saveDifferentDatesDifferentWeather();
+        Station tallinn = stationRegistry.fromWmoCode(26038);
+
+        Assertions.assertNull(weatherService.findClosestWeatherData(tallinn, LocalDateTime.of(2023, 6, 20, 0, 0)));
+        Assertions.assertNull(weatherService.findClosestWeatherData(tallinn, LocalDateTime.of(2023, 8, 16, 15, 16)));
+        Assertions.assertNull(weatherService.findClosestWeatherData(stationRegistry.fromWmoCode(26242),
+                LocalDateTime.of(2023, 7, 15, 12, 15)));
+    }
+}
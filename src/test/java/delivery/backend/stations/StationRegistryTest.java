@@ -0,0 +1,62 @@
+package delivery.backend.stations;
+
+import delivery.backend.DeliveryApplicationTestBase;
+import delivery.backend.enums.Vehicle;
+import delivery.backend.exceptions.StationNotFoundException;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Properties;
+
+class StationRegistryTest extends DeliveryApplicationTestBase {
+
+    @Test
+    void testConfiguredStations() {
+        Station tallinn = stationRegistry.fromWmoCode(Integer.parseInt(TALLINN));
+
+        Assertions.assertEquals("TALLINN", tallinn.getCity());
+        Assertions.assertEquals(400, tallinn.getBaseFee(Vehicle.CAR));
+        Assertions.assertEquals(3, stationRegistry.size());
+        Assertions.assertTrue(stationRegistry.contains(Integer.parseInt(PARNU)));
+        Assertions.assertNull(stationRegistry.get(Integer.parseInt(NARVA)));
+        Assertions.assertThrows(StationNotFoundException.class,
+                () -> stationRegistry.fromWmoCode(Integer.parseInt(NARVA)));
+    }
+
+    @Test
+    void testManyStations() {
+        Properties properties = new Properties();
+        for (int i = 0; i < 100; i++) {
+            properties.setProperty("station.CITY" + i + ".wmocode", String.valueOf(26000 + i * 7));
+            for (Vehicle vehicle : Vehicle.values()) {
+                properties.setProperty("station.CITY" + i + ".basefee." + vehicle.name(), String.valueOf(i));
+            }
+        }
+
+        StationRegistry registry = new StationRegistry(null);
+        registry.load(properties);
+
+        Assertions.assertEquals(100, registry.size());
+        for (int i = 0; i < 100; i++) {
+            Station station = registry.fromWmoCode(26000 + i * 7);
+            Assertions.assertEquals("CITY" + i, station.getCity());
+            Assertions.assertEquals(i * 100, station.getBaseFee(Vehicle.BIKE));
+            // Stations are sorted by wmo code and the id is the index
+            Assertions.assertSame(station, registry.getStations().get(station.getId()));
+        }
+        Assertions.assertNull(registry.get(26001));
+    }
+
+    @Test
+    void testDuplicateWmoCode() {
+        Properties properties = new Properties();
+        for (String city : new String[]{"A", "B"}) {
+            properties.setProperty("station." + city + ".wmocode", "26038");
+            for (Vehicle vehicle : Vehicle.values()) {
+                properties.setProperty("station." + city + ".basefee." + vehicle.name(), "1");
+            }
+        }
+
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new StationRegistry(null).load(properties));
+    }
+}